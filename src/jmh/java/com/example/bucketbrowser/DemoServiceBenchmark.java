@@ -0,0 +1,79 @@
+package com.example.bucketbrowser;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// The demo store under a mixed load from concurrent request threads: mostly
+// downloads, with uploads and folder listings running against them. Bodies are
+// held on the heap or in direct buffers.
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class DemoServiceBenchmark {
+
+    @Param({"10000"})
+    private int fileCount;
+
+    @Param({"false", "true"})
+    private boolean offHeap;
+
+    private DemoService demoService;
+    private byte[] payload;
+
+    @Setup
+    public void setUp() {
+        demoService = new DemoService(new KeyIndex(), 256L * 1024 * 1024, 1024 * 1024, offHeap);
+        payload = "x".repeat(1024).getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < fileCount; i++) {
+            demoService.uploadFile(key(i), payload, "text/plain");
+        }
+    }
+
+    private String key(int i) {
+        return String.format("bench/%02d/file-%06d.txt", i % 50, i);
+    }
+
+    private String randomKey() {
+        return key(ThreadLocalRandom.current().nextInt(fileCount));
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(6)
+    public long download() throws Exception {
+        return demoService.downloadFile(randomKey()).transferTo(OutputStream.nullOutputStream());
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public void upload() {
+        demoService.uploadFile(randomKey(), payload, "text/plain");
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public ListingPage listFolder() {
+        return demoService.listPage("bench/07/", "/", null, 100);
+    }
+}
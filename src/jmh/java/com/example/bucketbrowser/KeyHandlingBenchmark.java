@@ -0,0 +1,63 @@
+package com.example.bucketbrowser;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+// Per-request work on the key itself: decoding it from the request path and
+// picking a content type from its extension
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class KeyHandlingBenchmark {
+
+    private static final String[] KEYS = {
+        "README.md",
+        "documents/report-2024.txt",
+        "images/team photo (final).JPEG",
+        "data/exports/users.csv",
+        "backups/2024/06/20/db-dump.tar.gz",
+        "tenant-042/year=2024/month=06/part-0000123.parquet",
+        "Ünïcødé/文件/データ.json",
+        "scripts/deploy",
+    };
+
+    private String[] encodedKeys;
+
+    @Setup
+    public void setUp() {
+        encodedKeys = new String[KEYS.length];
+        for (int i = 0; i < KEYS.length; i++) {
+            encodedKeys[i] = URLEncoder.encode(KEYS[i], StandardCharsets.UTF_8).replace("%2F", "/");
+        }
+    }
+
+    @Benchmark
+    public void determineContentType(Blackhole blackhole) {
+        for (String key : KEYS) {
+            blackhole.consume(BucketController.determineContentType(key));
+        }
+    }
+
+    @Benchmark
+    public void decodeKey(Blackhole blackhole) {
+        for (String key : encodedKeys) {
+            blackhole.consume(BucketController.decodeKey(key));
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.bucketbrowser;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+// Serializing a full listing the way GET /bucket/list streams it, in each wire
+// format, and cutting one folder page out of the key index. Keys follow a
+// partitioned layout so front coding and compression see realistic prefixes.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ListingBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    private int keyCount;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ResponseCompressor compressor = new ResponseCompressor(true, 1);
+    private List<List<ObjectSummary>> pages;
+    private ConcurrentSkipListMap<String, ObjectSummary> index;
+
+    @Setup
+    public void setUp() {
+        index = new ConcurrentSkipListMap<>();
+        Instant modified = Instant.parse("2024-06-20T10:15:30Z");
+        for (int i = 0; i < keyCount; i++) {
+            String key = String.format("tenant-%03d/year=2024/month=%02d/part-%07d.parquet", i % 100, i % 12 + 1, i);
+            index.put(key, new ObjectSummary(key, 1024L + i, modified.plusSeconds(i),
+                    String.format("\"%032x\"", i), "STANDARD"));
+        }
+        pages = new ArrayList<>();
+        List<ObjectSummary> page = new ArrayList<>(ListingPage.MAX_PAGE_SIZE);
+        for (ObjectSummary summary : index.values()) {
+            page.add(summary);
+            if (page.size() == ListingPage.MAX_PAGE_SIZE) {
+                pages.add(page);
+                page = new ArrayList<>(ListingPage.MAX_PAGE_SIZE);
+            }
+        }
+        if (!page.isEmpty()) {
+            pages.add(page);
+        }
+    }
+
+    @Benchmark
+    public long keysJson() throws IOException {
+        CountingOutputStream out = new CountingOutputStream();
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.writeStartArray();
+            for (List<ObjectSummary> page : pages) {
+                for (ObjectSummary summary : page) {
+                    generator.writeString(summary.key());
+                }
+                generator.flush();
+            }
+            generator.writeEndArray();
+        }
+        return out.count;
+    }
+
+    @Benchmark
+    public long compactJson() throws IOException {
+        CountingOutputStream out = new CountingOutputStream();
+        writeCompact(out);
+        return out.count;
+    }
+
+    @Benchmark
+    public long compactGzip() throws IOException {
+        CountingOutputStream out = new CountingOutputStream();
+        writeCompact(compressor.wrap(out, ResponseCompressor.GZIP));
+        return out.count;
+    }
+
+    // The folder view the web UI asks for: direct children of one partition
+    @Benchmark
+    public ListingPage folderPage() {
+        return ListingPage.fromSorted(index, "tenant-042/year=2024/", "/", null, ListingPage.MAX_PAGE_SIZE);
+    }
+
+    private void writeCompact(OutputStream out) throws IOException {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.writeStartArray();
+            for (List<ObjectSummary> page : pages) {
+                generator.writeObject(CompactListing.of(page));
+                generator.flush();
+            }
+            generator.writeEndArray();
+        }
+    }
+
+    private static class CountingOutputStream extends OutputStream {
+        long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.bucketbrowser;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// The download copy loop: an object body streamed to the response through the
+// pooled transfer buffers, whole or reassembled from concurrent ranged reads.
+// The body comes from memory, so this is the app's own overhead per byte.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class TransferBenchmark {
+
+    @Param({"65536", "8388608", "67108864"})
+    private int size;
+
+    private byte[] data;
+    private ObjectMetadata metadata;
+    private ExecutorService executor;
+
+    @Setup
+    public void setUp() {
+        data = new byte[size];
+        new Random(42).nextBytes(data);
+        metadata = new ObjectMetadata("bench/object.bin", size, "application/octet-stream", "\"bench\"", null);
+        executor = Executors.newFixedThreadPool(8);
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public long transferTo() throws IOException {
+        ObjectContent content = new ObjectContent(metadata, new ByteArrayInputStream(data), size, null);
+        return content.transferTo(OutputStream.nullOutputStream());
+    }
+
+    // 1 MiB chunks, four in flight, as S3Service.parallelDownload sets it up
+    @Benchmark
+    public long parallelRanges() throws IOException {
+        ParallelRangeInputStream.RangeOpener opener = range ->
+                new ByteArrayInputStream(data, (int) range.start(), (int) range.length());
+        int chunkSize = 1024 * 1024;
+        ByteRange whole = new ByteRange(0, size - 1);
+        ByteRange first = new ByteRange(0, Math.min(size, chunkSize) - 1);
+        try (ParallelRangeInputStream in = new ParallelRangeInputStream(opener,
+                new ByteArrayInputStream(data, 0, (int) first.length()), whole, chunkSize, 4, executor,
+                new Semaphore(3))) {
+            return TransferBuffers.copy(in, OutputStream.nullOutputStream());
+        }
+    }
+}
@@ -0,0 +1,506 @@
+package com.example.bucketbrowser.loadtest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+// Minimal, in-process S3-compatible endpoint for offline load tests. It speaks
+// just enough of the path-style REST API for the app: ListObjectsV2, Get/Head/
+// Put/DeleteObject (with ranges), DeleteObjects, multipart uploads and HeadBucket.
+// Every request can be delayed by a fixed latency plus random jitter to imitate
+// a remote object store.
+public class FakeS3Server {
+
+    private static final DateTimeFormatter HTTP_DATE = DateTimeFormatter.RFC_1123_DATE_TIME.withZone(ZoneOffset.UTC);
+    private static final DateTimeFormatter ISO_DATE = DateTimeFormatter.ISO_INSTANT;
+    private static final Pattern RANGE = Pattern.compile("bytes=(\\d*)-(\\d*)");
+
+    private record StoredObject(byte[] data, String contentType, String contentEncoding, String eTag,
+                                Instant lastModified) {
+    }
+
+    private final String bucket;
+    private final long latencyMs;
+    private final long jitterMs;
+    private final NavigableMap<String, StoredObject> objects = new ConcurrentSkipListMap<>();
+    private final Map<String, Map<Integer, byte[]>> uploads = new ConcurrentHashMap<>();
+    private final Map<String, String> uploadContentTypes = new ConcurrentHashMap<>();
+    private final AtomicLong requests = new AtomicLong();
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public FakeS3Server(String bucket, long latencyMs, long jitterMs) {
+        this.bucket = bucket;
+        this.latencyMs = latencyMs;
+        this.jitterMs = jitterMs;
+    }
+
+    public void start(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 512);
+        executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "fake-s3");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    public void putObject(String key, byte[] data, String contentType) {
+        objects.put(key, new StoredObject(data, contentType, null, md5ETag(data), Instant.now()));
+    }
+
+    public int objectCount() {
+        return objects.size();
+    }
+
+    public long requestCount() {
+        return requests.get();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        try {
+            delay();
+            String rawPath = exchange.getRequestURI().getRawPath();
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+            String path = rawPath.startsWith("/") ? rawPath.substring(1) : rawPath;
+            int slash = path.indexOf('/');
+            String bucketName = slash < 0 ? path : path.substring(0, slash);
+            String key = slash < 0 ? "" : URLDecoder.decode(path.substring(slash + 1).replace("+", "%2B"),
+                    StandardCharsets.UTF_8);
+
+            if (!bucket.equals(bucketName)) {
+                error(exchange, 404, "NoSuchBucket", "The specified bucket does not exist");
+                return;
+            }
+
+            String method = exchange.getRequestMethod();
+            if (key.isEmpty()) {
+                switch (method) {
+                    case "GET" -> listObjects(exchange, query);
+                    case "HEAD" -> send(exchange, 200, null, new byte[0]);
+                    case "POST" -> {
+                        if (query.containsKey("delete")) {
+                            deleteObjects(exchange);
+                        } else {
+                            error(exchange, 400, "InvalidRequest", "Unsupported bucket operation");
+                        }
+                    }
+                    default -> error(exchange, 405, "MethodNotAllowed", "Unsupported method");
+                }
+                return;
+            }
+
+            switch (method) {
+                case "GET" -> getObject(exchange, key, false);
+                case "HEAD" -> getObject(exchange, key, true);
+                case "PUT" -> {
+                    if (query.containsKey("uploadId")) {
+                        uploadPart(exchange, query.get("uploadId"), Integer.parseInt(query.get("partNumber")));
+                    } else {
+                        putObject(exchange, key);
+                    }
+                }
+                case "POST" -> {
+                    if (query.containsKey("uploads")) {
+                        createMultipartUpload(exchange, key);
+                    } else if (query.containsKey("uploadId")) {
+                        completeMultipartUpload(exchange, key, query.get("uploadId"));
+                    } else {
+                        error(exchange, 400, "InvalidRequest", "Unsupported object operation");
+                    }
+                }
+                case "DELETE" -> {
+                    if (query.containsKey("uploadId")) {
+                        uploads.remove(query.get("uploadId"));
+                    } else {
+                        objects.remove(key);
+                    }
+                    send(exchange, 204, null, null);
+                }
+                default -> error(exchange, 405, "MethodNotAllowed", "Unsupported method");
+            }
+        } catch (Exception e) {
+            error(exchange, 500, "InternalError", String.valueOf(e.getMessage()));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void delay() throws InterruptedException {
+        long sleep = latencyMs + (jitterMs > 0 ? ThreadLocalRandom.current().nextLong(jitterMs + 1) : 0);
+        if (sleep > 0) {
+            Thread.sleep(sleep);
+        }
+    }
+
+    private void listObjects(HttpExchange exchange, Map<String, String> query) throws IOException {
+        String prefix = query.getOrDefault("prefix", "");
+        String delimiter = query.get("delimiter");
+        int maxKeys = Integer.parseInt(query.getOrDefault("max-keys", "1000"));
+        String token = query.get("continuation-token");
+        String startAfter = token != null ? new String(HexFormat.of().parseHex(token), StandardCharsets.UTF_8)
+                : query.get("start-after");
+
+        NavigableMap<String, StoredObject> range = startAfter != null && startAfter.compareTo(prefix) >= 0
+                ? objects.tailMap(startAfter, false)
+                : objects.tailMap(prefix, true);
+
+        StringBuilder contents = new StringBuilder();
+        TreeSet<String> prefixes = new TreeSet<>();
+        int count = 0;
+        String last = null;
+        boolean truncated = false;
+        for (Map.Entry<String, StoredObject> entry : range.entrySet()) {
+            String key = entry.getKey();
+            if (!key.startsWith(prefix)) {
+                break;
+            }
+            String commonPrefix = null;
+            if (delimiter != null && !delimiter.isEmpty()) {
+                int index = key.indexOf(delimiter, prefix.length());
+                if (index >= 0) {
+                    commonPrefix = key.substring(0, index + delimiter.length());
+                }
+            }
+            if (commonPrefix != null && prefixes.contains(commonPrefix)) {
+                last = key;
+                continue;
+            }
+            if (count == maxKeys) {
+                truncated = true;
+                break;
+            }
+            if (commonPrefix != null) {
+                prefixes.add(commonPrefix);
+            } else {
+                StoredObject object = entry.getValue();
+                contents.append("<Contents><Key>").append(xml(key)).append("</Key>")
+                        .append("<LastModified>").append(ISO_DATE.format(object.lastModified())).append("</LastModified>")
+                        .append("<ETag>").append(xml(object.eTag())).append("</ETag>")
+                        .append("<Size>").append(object.data().length).append("</Size>")
+                        .append("<StorageClass>STANDARD</StorageClass></Contents>");
+            }
+            count++;
+            last = key;
+        }
+
+        StringBuilder body = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>")
+                .append("<ListBucketResult xmlns=\"http://s3.amazonaws.com/doc/2006-03-01/\">")
+                .append("<Name>").append(bucket).append("</Name>")
+                .append("<Prefix>").append(xml(prefix)).append("</Prefix>")
+                .append("<KeyCount>").append(count).append("</KeyCount>")
+                .append("<MaxKeys>").append(maxKeys).append("</MaxKeys>")
+                .append("<IsTruncated>").append(truncated).append("</IsTruncated>");
+        if (truncated && last != null) {
+            body.append("<NextContinuationToken>")
+                    .append(HexFormat.of().formatHex(last.getBytes(StandardCharsets.UTF_8)))
+                    .append("</NextContinuationToken>");
+        }
+        body.append(contents);
+        for (String commonPrefix : prefixes) {
+            body.append("<CommonPrefixes><Prefix>").append(xml(commonPrefix)).append("</Prefix></CommonPrefixes>");
+        }
+        body.append("</ListBucketResult>");
+        send(exchange, 200, "application/xml", body.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void getObject(HttpExchange exchange, String key, boolean headOnly) throws IOException {
+        StoredObject object = objects.get(key);
+        if (object == null) {
+            if (headOnly) {
+                send(exchange, 404, null, null);
+            } else {
+                error(exchange, 404, "NoSuchKey", "The specified key does not exist.");
+            }
+            return;
+        }
+
+        String ifMatch = exchange.getRequestHeaders().getFirst("If-Match");
+        if (ifMatch != null && !ifMatch.equals(object.eTag())) {
+            error(exchange, 412, "PreconditionFailed", "At least one of the pre-conditions you specified did not hold");
+            return;
+        }
+
+        String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+        if (ifNoneMatch != null && ifNoneMatch.equals(object.eTag())) {
+            exchange.getResponseHeaders().add("ETag", object.eTag());
+            send(exchange, 304, null, null);
+            return;
+        }
+
+        var headers = exchange.getResponseHeaders();
+        headers.add("ETag", object.eTag());
+        headers.add("Last-Modified", HTTP_DATE.format(object.lastModified()));
+        headers.add("Accept-Ranges", "bytes");
+        if (object.contentType() != null) {
+            headers.add("Content-Type", object.contentType());
+        }
+        if (object.contentEncoding() != null) {
+            headers.add("Content-Encoding", object.contentEncoding());
+        }
+
+        byte[] data = object.data();
+        int start = 0;
+        int end = data.length - 1;
+        int status = 200;
+        String range = exchange.getRequestHeaders().getFirst("Range");
+        if (range != null) {
+            Matcher matcher = RANGE.matcher(range);
+            if (matcher.matches()) {
+                if (matcher.group(1).isEmpty()) {
+                    start = Math.max(0, data.length - Integer.parseInt(matcher.group(2)));
+                } else {
+                    start = Integer.parseInt(matcher.group(1));
+                    if (!matcher.group(2).isEmpty()) {
+                        end = Math.min(end, Integer.parseInt(matcher.group(2)));
+                    }
+                }
+                if (start >= data.length) {
+                    error(exchange, 416, "InvalidRange", "The requested range is not satisfiable");
+                    return;
+                }
+                status = 206;
+                headers.add("Content-Range", "bytes " + start + "-" + end + "/" + data.length);
+            }
+        }
+
+        int length = end - start + 1;
+        if (headOnly) {
+            headers.add("Content-Length", String.valueOf(data.length));
+            exchange.sendResponseHeaders(200, -1);
+            return;
+        }
+        exchange.sendResponseHeaders(status, length == 0 ? -1 : length);
+        if (length > 0) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(data, start, length);
+            }
+        }
+    }
+
+    private void putObject(HttpExchange exchange, String key) throws IOException {
+        byte[] data = readBody(exchange);
+        String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        StoredObject object = new StoredObject(data, contentType, storedEncoding(exchange), md5ETag(data),
+                Instant.now());
+        objects.put(key, object);
+        exchange.getResponseHeaders().add("ETag", object.eTag());
+        send(exchange, 200, null, null);
+    }
+
+    private void createMultipartUpload(HttpExchange exchange, String key) throws IOException {
+        String uploadId = UUID.randomUUID().toString();
+        uploads.put(uploadId, new ConcurrentHashMap<>());
+        String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        if (contentType != null) {
+            uploadContentTypes.put(uploadId, contentType);
+        }
+        String body = "<?xml version=\"1.0\" encoding=\"UTF-8\"?><InitiateMultipartUploadResult>"
+                + "<Bucket>" + bucket + "</Bucket><Key>" + xml(key) + "</Key><UploadId>" + uploadId
+                + "</UploadId></InitiateMultipartUploadResult>";
+        send(exchange, 200, "application/xml", body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void uploadPart(HttpExchange exchange, String uploadId, int partNumber) throws IOException {
+        Map<Integer, byte[]> parts = uploads.get(uploadId);
+        if (parts == null) {
+            error(exchange, 404, "NoSuchUpload", "The specified upload does not exist.");
+            return;
+        }
+        byte[] data = readBody(exchange);
+        parts.put(partNumber, data);
+        exchange.getResponseHeaders().add("ETag", md5ETag(data));
+        send(exchange, 200, null, null);
+    }
+
+    private void completeMultipartUpload(HttpExchange exchange, String key, String uploadId) throws IOException {
+        readBody(exchange);
+        Map<Integer, byte[]> parts = uploads.remove(uploadId);
+        if (parts == null) {
+            error(exchange, 404, "NoSuchUpload", "The specified upload does not exist.");
+            return;
+        }
+        ByteArrayOutputStream combined = new ByteArrayOutputStream();
+        for (byte[] part : new TreeMap<>(parts).values()) {
+            combined.write(part);
+        }
+        byte[] data = combined.toByteArray();
+        String eTag = "\"" + md5ETag(data).replace("\"", "") + "-" + parts.size() + "\"";
+        objects.put(key, new StoredObject(data, uploadContentTypes.remove(uploadId), null, eTag, Instant.now()));
+        String body = "<?xml version=\"1.0\" encoding=\"UTF-8\"?><CompleteMultipartUploadResult>"
+                + "<Bucket>" + bucket + "</Bucket><Key>" + xml(key) + "</Key><ETag>" + xml(eTag)
+                + "</ETag></CompleteMultipartUploadResult>";
+        send(exchange, 200, "application/xml", body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void deleteObjects(HttpExchange exchange) throws IOException {
+        String request = new String(readBody(exchange), StandardCharsets.UTF_8);
+        Matcher matcher = Pattern.compile("<Key>(.*?)</Key>", Pattern.DOTALL).matcher(request);
+        StringBuilder body = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?><DeleteResult>");
+        while (matcher.find()) {
+            String key = unxml(matcher.group(1));
+            objects.remove(key);
+            body.append("<Deleted><Key>").append(xml(key)).append("</Key></Deleted>");
+        }
+        body.append("</DeleteResult>");
+        send(exchange, 200, "application/xml", body.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Like S3, keeps the Content-Encoding of a PUT minus the aws-chunked transfer framing
+    private static String storedEncoding(HttpExchange exchange) {
+        String encoding = exchange.getRequestHeaders().getFirst("Content-Encoding");
+        if (encoding == null) {
+            return null;
+        }
+        String stored = Arrays.stream(encoding.split(","))
+                .map(String::trim)
+                .filter(coding -> !coding.isEmpty() && !coding.equalsIgnoreCase("aws-chunked"))
+                .collect(Collectors.joining(","));
+        return stored.isEmpty() ? null : stored;
+    }
+
+    // Request bodies may arrive aws-chunked (the SDK's streaming checksum trailer
+    // format): <hex-size>[;ext]\r\n<data>\r\n ... 0\r\n<trailers>\r\n\r\n
+    private static byte[] readBody(HttpExchange exchange) throws IOException {
+        byte[] raw;
+        try (InputStream in = exchange.getRequestBody()) {
+            raw = in.readAllBytes();
+        }
+        String encoding = exchange.getRequestHeaders().getFirst("Content-Encoding");
+        String sha = exchange.getRequestHeaders().getFirst("x-amz-content-sha256");
+        boolean chunked = (encoding != null && encoding.contains("aws-chunked"))
+                || (sha != null && sha.startsWith("STREAMING-"));
+        if (!chunked) {
+            return raw;
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length);
+        int pos = 0;
+        while (pos < raw.length) {
+            int lineEnd = indexOfCrlf(raw, pos);
+            String header = new String(raw, pos, lineEnd - pos, StandardCharsets.US_ASCII);
+            int semicolon = header.indexOf(';');
+            int size = Integer.parseInt((semicolon >= 0 ? header.substring(0, semicolon) : header).trim(), 16);
+            pos = lineEnd + 2;
+            if (size == 0) {
+                break;
+            }
+            out.write(raw, pos, size);
+            pos += size + 2;
+        }
+        return out.toByteArray();
+    }
+
+    private static int indexOfCrlf(byte[] data, int from) {
+        for (int i = from; i + 1 < data.length; i++) {
+            if (data[i] == '\r' && data[i + 1] == '\n') {
+                return i;
+            }
+        }
+        return data.length;
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, byte[] body) throws IOException {
+        if (contentType != null) {
+            exchange.getResponseHeaders().add("Content-Type", contentType);
+        }
+        if (body == null || body.length == 0) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static void error(HttpExchange exchange, int status, String code, String message) throws IOException {
+        String body = "<?xml version=\"1.0\" encoding=\"UTF-8\"?><Error><Code>" + code + "</Code><Message>"
+                + xml(message) + "</Message></Error>";
+        send(exchange, status, "application/xml", body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return query;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            String name = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+            String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            query.put(name, value);
+        }
+        return query;
+    }
+
+    private static String md5ETag(byte[] data) {
+        try {
+            return "\"" + HexFormat.of().formatHex(MessageDigest.getInstance("MD5").digest(data)) + "\"";
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String xml(String value) {
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+
+    private static String unxml(String value) {
+        return value.replace("&quot;", "\"").replace("&lt;", "<").replace("&gt;", ">").replace("&amp;", "&");
+    }
+
+    // Standalone: java FakeS3Server.java <port> <bucket> [latencyMs] [jitterMs]
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 9000;
+        String bucket = args.length > 1 ? args[1] : "test-bucket";
+        long latency = args.length > 2 ? Long.parseLong(args[2]) : 0;
+        long jitter = args.length > 3 ? Long.parseLong(args[3]) : 0;
+        FakeS3Server server = new FakeS3Server(bucket, latency, jitter);
+        server.start(port);
+        System.out.println("Fake S3 listening on port " + server.getPort() + ", bucket " + bucket);
+        Thread.currentThread().join();
+    }
+}
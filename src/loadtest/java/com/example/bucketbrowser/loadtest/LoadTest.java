@@ -0,0 +1,364 @@
+package com.example.bucketbrowser.loadtest;
+
+import java.io.IOException;
+import java.net.CookieManager;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Stream;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.example.bucketbrowser.BucketBrowserApplication;
+import com.example.bucketbrowser.KeyIndex;
+import com.example.bucketbrowser.StorageBackend;
+
+// End-to-end load test: starts the whole app in this JVM, against a fake S3
+// endpoint or one of the local storage backends, logs in N virtual users through
+// the form login like the web UI does, and has each run a weighted mix of folder
+// listings, downloads, uploads and deletes for a fixed time. Prints throughput
+// and latency percentiles per operation.
+//
+// Options (all --name=value): backend (s3, memory or filesystem), users, duration
+// and warmup (seconds), latency and jitter (ms added to every S3 request), objects
+// and object-size (seeded data), mix (e.g. list:40,download:40,upload:15,delete:5).
+// Any other --option is passed to the app, e.g. --bucket.cache.enabled=false or
+// --spring.threads.virtual.enabled=true.
+public class LoadTest {
+
+    private static final String BUCKET = "load-bucket";
+    private static final String USERNAME = "load";
+    private static final String PASSWORD = "load-test";
+    private static final int FOLDERS = 20;
+
+    private static final List<String> OPERATIONS = List.of("list", "download", "upload", "delete");
+
+    private final String backend;
+    private final int users;
+    private final int durationSeconds;
+    private final int warmupSeconds;
+    private final long latencyMs;
+    private final long jitterMs;
+    private final int objects;
+    private final int objectSize;
+    private final int[] mixWeights;
+    private final List<String> appArgs;
+
+    private String baseUrl;
+    private byte[] payload;
+    private volatile boolean recording = false;
+    private volatile boolean running = true;
+    private long measuredNanos;
+    private long measuredS3Requests;
+
+    // Latencies of one operation as seen by one virtual user, in microseconds
+    private static class Samples {
+        private long[] values = new long[1024];
+        private int count = 0;
+        private int errors = 0;
+
+        void add(long micros) {
+            if (count == values.length) {
+                values = Arrays.copyOf(values, count * 2);
+            }
+            values[count++] = micros;
+        }
+    }
+
+    private LoadTest(Map<String, String> options, List<String> appArgs) {
+        this.backend = options.getOrDefault("backend", "s3");
+        if (!List.of("s3", "memory", "filesystem").contains(backend)) {
+            throw new IllegalArgumentException("Unknown backend: " + backend);
+        }
+        this.users = Integer.parseInt(options.getOrDefault("users", "16"));
+        this.durationSeconds = Integer.parseInt(options.getOrDefault("duration", "30"));
+        this.warmupSeconds = Integer.parseInt(options.getOrDefault("warmup", "5"));
+        this.latencyMs = Long.parseLong(options.getOrDefault("latency", "20"));
+        this.jitterMs = Long.parseLong(options.getOrDefault("jitter", "10"));
+        this.objects = Integer.parseInt(options.getOrDefault("objects", "2000"));
+        this.objectSize = Integer.parseInt(options.getOrDefault("object-size", "65536"));
+        this.mixWeights = parseMix(options.getOrDefault("mix", "list:40,download:40,upload:15,delete:5"));
+        this.appArgs = appArgs;
+    }
+
+    private static int[] parseMix(String mix) {
+        int[] weights = new int[OPERATIONS.size()];
+        for (String part : mix.split(",")) {
+            String[] pair = part.split(":");
+            int index = OPERATIONS.indexOf(pair[0].trim());
+            if (index < 0 || pair.length != 2) {
+                throw new IllegalArgumentException("Unknown operation in mix: " + part);
+            }
+            weights[index] = Integer.parseInt(pair[1].trim());
+        }
+        return weights;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        List<String> appArgs = new ArrayList<>();
+        List<String> own = List.of("backend", "users", "duration", "warmup", "latency", "jitter", "objects", "object-size", "mix");
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            String name = arg.startsWith("--") && eq > 2 ? arg.substring(2, eq) : null;
+            if (name != null && own.contains(name)) {
+                options.put(name, arg.substring(eq + 1));
+            } else {
+                appArgs.add(arg);
+            }
+        }
+        new LoadTest(options, appArgs).run();
+        System.exit(0);
+    }
+
+    private void run() throws Exception {
+        payload = new byte[objectSize];
+        new Random(42).nextBytes(payload);
+        FakeS3Server s3 = null;
+        Path root = null;
+        List<String> args = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--app.security.username=" + USERNAME,
+                "--app.security.password=" + PASSWORD,
+                // Per-request INFO lines would make the test measure the console
+                "--logging.level.com.example.bucketbrowser=WARN"));
+        if (backend.equals("s3")) {
+            s3 = new FakeS3Server(BUCKET, latencyMs, jitterMs);
+            s3.start(0);
+            for (int i = 0; i < objects; i++) {
+                s3.putObject(seededKey(i), payload, "application/octet-stream");
+            }
+            args.addAll(List.of(
+                    "--bucket.host=http://127.0.0.1:" + s3.getPort(),
+                    "--bucket.name=" + BUCKET,
+                    "--bucket.access.key=load",
+                    "--bucket.secret.key=load"));
+        } else if (backend.equals("filesystem")) {
+            root = Files.createTempDirectory("bucket-load-");
+            args.addAll(List.of("--bucket.backend=filesystem", "--bucket.filesystem.root=" + root));
+        } else {
+            args.add("--bucket.backend=memory");
+        }
+        args.addAll(appArgs);
+        ConfigurableApplicationContext app = SpringApplication.run(BucketBrowserApplication.class,
+                args.toArray(String[]::new));
+        try {
+            baseUrl = "http://127.0.0.1:" + app.getEnvironment().getProperty("local.server.port");
+            if (s3 == null) {
+                StorageBackend storage = app.getBean(StorageBackend.class);
+                for (int i = 0; i < objects; i++) {
+                    storage.uploadFile(seededKey(i), payload, "application/octet-stream");
+                }
+            }
+            KeyIndex keyIndex = app.getBean(KeyIndex.class);
+            long deadline = System.currentTimeMillis() + 60_000;
+            while (keyIndex.isEnabled() && !keyIndex.isReady() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(100);
+            }
+            report(drive(s3));
+        } finally {
+            app.close();
+            if (s3 != null) {
+                s3.stop();
+            }
+            if (root != null) {
+                deleteTree(root);
+            }
+        }
+    }
+
+    private static void deleteTree(Path root) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    private static String seededKey(int i) {
+        return String.format("load/folder-%02d/object-%06d.bin", i % FOLDERS, i);
+    }
+
+    private List<Samples[]> drive(FakeS3Server s3) throws Exception {
+        System.out.printf(Locale.ROOT, "%nLoad test: %d users, %ds (+%ds warmup), %s, %d objects of %d bytes%n",
+                users, durationSeconds, warmupSeconds,
+                s3 == null ? backend + " backend" : "S3 latency " + latencyMs + "+" + jitterMs + " ms", objects, objectSize);
+
+        List<Samples[]> results = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        CountDownLatch loggedIn = new CountDownLatch(users);
+        for (int user = 0; user < users; user++) {
+            Samples[] samples = new Samples[OPERATIONS.size()];
+            for (int i = 0; i < samples.length; i++) {
+                samples[i] = new Samples();
+            }
+            results.add(samples);
+            int id = user;
+            Thread thread = new Thread(() -> virtualUser(id, samples, loggedIn), "load-user-" + user);
+            threads.add(thread);
+            thread.start();
+        }
+
+        loggedIn.await();
+        Thread.sleep(warmupSeconds * 1000L);
+        recording = true;
+        long started = System.nanoTime();
+        long s3RequestsBefore = s3 == null ? 0 : s3.requestCount();
+        Thread.sleep(durationSeconds * 1000L);
+        recording = false;
+        measuredNanos = System.nanoTime() - started;
+        measuredS3Requests = s3 == null ? 0 : s3.requestCount() - s3RequestsBefore;
+        running = false;
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return results;
+    }
+
+    private void virtualUser(int id, Samples[] samples, CountDownLatch loggedIn) {
+        HttpClient client = HttpClient.newBuilder()
+                .cookieHandler(new CookieManager())
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        try {
+            login(client);
+        } catch (Exception e) {
+            System.err.println("User " + id + " could not log in: " + e.getMessage());
+            loggedIn.countDown();
+            return;
+        }
+        loggedIn.countDown();
+
+        int totalWeight = Arrays.stream(mixWeights).sum();
+        ArrayDeque<String> uploaded = new ArrayDeque<>();
+        int sequence = 0;
+        while (running) {
+            int pick = ThreadLocalRandom.current().nextInt(totalWeight);
+            int operation = 0;
+            while (pick >= mixWeights[operation]) {
+                pick -= mixWeights[operation++];
+            }
+            // Users only delete what they uploaded themselves, so downloads never race a delete
+            if (OPERATIONS.get(operation).equals("delete") && uploaded.isEmpty()) {
+                operation = OPERATIONS.indexOf("upload");
+            }
+
+            HttpRequest request;
+            String uploadKey = null;
+            switch (OPERATIONS.get(operation)) {
+                case "list" -> request = get("/bucket/list?prefix=" + encode(String.format("load/folder-%02d/",
+                        ThreadLocalRandom.current().nextInt(FOLDERS))) + "&delimiter=/&pageSize=1000&format=compact");
+                case "download" -> request = get("/bucket/download/"
+                        + seededKey(ThreadLocalRandom.current().nextInt(objects)));
+                case "upload" -> {
+                    uploadKey = "load/uploads/user-" + id + "/object-" + sequence++ + ".bin";
+                    request = HttpRequest.newBuilder(URI.create(baseUrl + "/bucket/upload/" + uploadKey))
+                            .header("Content-Type", "application/octet-stream")
+                            .PUT(HttpRequest.BodyPublishers.ofByteArray(payload))
+                            .build();
+                }
+                default -> request = HttpRequest.newBuilder(
+                        URI.create(baseUrl + "/bucket/delete/" + uploaded.poll())).DELETE().build();
+            }
+
+            long started = System.nanoTime();
+            boolean ok;
+            try {
+                HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+                ok = response.statusCode() / 100 == 2;
+            } catch (Exception e) {
+                ok = false;
+            }
+            long micros = (System.nanoTime() - started) / 1000;
+            if (ok && uploadKey != null) {
+                uploaded.add(uploadKey);
+            }
+            if (recording) {
+                samples[operation].add(micros);
+                if (!ok) {
+                    samples[operation].errors++;
+                }
+            }
+        }
+    }
+
+    private void login(HttpClient client) throws Exception {
+        String form = "username=" + encode(USERNAME) + "&password=" + encode(PASSWORD);
+        HttpResponse<Void> response = client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/login"))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(form))
+                .build(), HttpResponse.BodyHandlers.discarding());
+        String location = response.headers().firstValue("Location").orElse("");
+        if (response.statusCode() != 302 || location.contains("error")) {
+            throw new IllegalStateException("login answered " + response.statusCode() + " " + location);
+        }
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).GET().build();
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    private void report(List<Samples[]> results) {
+        double seconds = measuredNanos / 1e9;
+        System.out.printf(Locale.ROOT, "%n%-10s %9s %7s %9s %9s %9s %9s %9s %9s%n",
+                "operation", "requests", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        long total = 0;
+        for (int operation = 0; operation < OPERATIONS.size(); operation++) {
+            int count = 0;
+            int errors = 0;
+            for (Samples[] samples : results) {
+                count += samples[operation].count;
+                errors += samples[operation].errors;
+            }
+            long[] merged = new long[count];
+            int offset = 0;
+            for (Samples[] samples : results) {
+                System.arraycopy(samples[operation].values, 0, merged, offset, samples[operation].count);
+                offset += samples[operation].count;
+            }
+            Arrays.sort(merged);
+            total += count;
+            System.out.printf(Locale.ROOT, "%-10s %9d %7d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                    OPERATIONS.get(operation), count, errors, count / seconds,
+                    percentile(merged, 50), percentile(merged, 90), percentile(merged, 99), percentile(merged, 99.9),
+                    merged.length == 0 ? 0 : merged[merged.length - 1] / 1000.0);
+        }
+        System.out.printf(Locale.ROOT, "%-10s %9d %7s %9.1f%n", "total", total, "", total / seconds);
+        if (backend.equals("s3")) {
+            System.out.printf(Locale.ROOT, "S3 requests: %d (%.2f per app request)%n",
+                    measuredS3Requests, total == 0 ? 0 : (double) measuredS3Requests / total);
+        }
+        System.out.println();
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1000.0;
+    }
+}
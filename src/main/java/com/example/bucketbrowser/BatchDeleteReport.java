@@ -0,0 +1,21 @@
+package com.example.bucketbrowser;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Per-key outcome of a batch delete. A key that did not exist counts as deleted,
+// matching S3 DeleteObjects.
+public record BatchDeleteReport(List<String> deleted, List<Failure> failed) {
+
+    public record Failure(String key, String code, String message) {
+    }
+
+    public BatchDeleteReport() {
+        this(new ArrayList<>(), new ArrayList<>());
+    }
+
+    public void addAll(BatchDeleteReport other) {
+        deleted.addAll(other.deleted());
+        failed.addAll(other.failed());
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.bucketbrowser;
+
+import java.util.List;
+
+// Body of POST /bucket/delete-batch: explicit keys, everything under a prefix, or both
+public record BatchDeleteRequest(List<String> keys, String prefix) {
+}
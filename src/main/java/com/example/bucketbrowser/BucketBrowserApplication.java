@@ -4,11 +4,13 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 @SpringBootApplication(scanBasePackages = "com.example")
+@EnableScheduling
 public class BucketBrowserApplication implements CommandLineRunner {
     private static final Logger logger = LoggerFactory.getLogger(BucketBrowserApplication.class);
 
@@ -6,20 +6,50 @@ import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import jakarta.annotation.PostConstruct;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.function.Consumer;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.MediaType;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -28,19 +58,74 @@ import org.slf4j.LoggerFactory;
 public class BucketController {
     private static final Logger logger = LoggerFactory.getLogger(BucketController.class);
 
-    private final S3Service s3Service;
-    private final DemoService demoService;
+    // More ranges than this in one request are ignored and the whole object is sent
+    private static final int MAX_RANGES = 16;
+
+    // Tomcat's sendfile handshake: the connector advertises support on the request,
+    // and serves a file region named in these attributes in place of a body
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    @Value("${bucket.download.validate-from-index:true}")
+    private boolean validateFromIndex;
+
+    @Value("${bucket.filesystem.sendfile:true}")
+    private boolean sendfile;
+
+    @Value("${bucket.compression.downloads:true}")
+    private boolean compressDownloads;
+
+    // Below this the coding overhead eats most of the saving
+    @Value("${bucket.compression.min-size:1024}")
+    private long compressMinSize;
+
+    private final StorageBackend storage;
+    private final KeyIndex keyIndex;
+    private final KeySearchIndex searchIndex;
+    private final ZipArchiveStreamer archiveStreamer;
+    private final CacheControlPolicy cacheControlPolicy;
+    private final ObjectContentCache contentCache;
+    private final BucketStats bucketStats;
+    private final BucketHealthIndicator bucketHealth;
+    private final ResponseCompressor responseCompressor;
+    private final CompressedVariantCache variantCache;
+    private final ThumbnailService thumbnails;
+    private final TextPreviewService textPreview;
+    private final ChangeFeed changeFeed;
+    private final BucketMetrics bucketMetrics;
+    private final ObjectMapper objectMapper;
     private boolean demoMode;
 
     @Autowired
-    public BucketController(S3Service s3Service, DemoService demoService) {
-        this.s3Service = s3Service;
-        this.demoService = demoService;
+    public BucketController(StorageBackend storage, KeyIndex keyIndex,
+                            KeySearchIndex searchIndex, ZipArchiveStreamer archiveStreamer,
+                            CacheControlPolicy cacheControlPolicy, ObjectContentCache contentCache,
+                            BucketStats bucketStats, BucketHealthIndicator bucketHealth,
+                            ResponseCompressor responseCompressor, CompressedVariantCache variantCache,
+                            ThumbnailService thumbnails, TextPreviewService textPreview,
+                            ChangeFeed changeFeed, BucketMetrics bucketMetrics, ObjectMapper objectMapper) {
+        this.storage = storage;
+        this.keyIndex = keyIndex;
+        this.searchIndex = searchIndex;
+        this.archiveStreamer = archiveStreamer;
+        this.cacheControlPolicy = cacheControlPolicy;
+        this.contentCache = contentCache;
+        this.bucketStats = bucketStats;
+        this.bucketHealth = bucketHealth;
+        this.responseCompressor = responseCompressor;
+        this.variantCache = variantCache;
+        this.thumbnails = thumbnails;
+        this.textPreview = textPreview;
+        this.changeFeed = changeFeed;
+        this.bucketMetrics = bucketMetrics;
+        this.objectMapper = objectMapper;
     }
 
     @PostConstruct
     public void init() {
-        this.demoMode = !s3Service.isInitialized();
+        this.demoMode = storage instanceof DemoService;
         if (demoMode) {
             logger.info("BucketController running in DEMO MODE");
         }
@@ -50,67 +135,716 @@ public class BucketController {
         return demoMode;
     }
 
+    // Full listing: stream the JSON array out page by page as S3 returns them. In
+    // compact format the array holds one CompactListing block per page instead of keys.
+    // Asking for application/x-ndjson drops the array: each key or block goes on a
+    // line of its own, so a client can act on each line as soon as it arrives.
+    @GetMapping(value = "/bucket/list", params = {"!pageSize", "!cursor", "!delimiter"})
+    public ResponseEntity<StreamingResponseBody> getObjects(@RequestParam(value = "prefix", required = false) String prefix,
+                                                            @RequestParam(value = "format", required = false) String format,
+                                                            @RequestHeader(value = "Accept", required = false) String accept,
+                                                            @RequestHeader(value = "Accept-Encoding", required = false) String acceptEncoding) {
+        boolean ndjson = accept != null && accept.contains(MediaType.APPLICATION_NDJSON_VALUE);
+        String coding = responseCompressor.negotiate(acceptEncoding);
+        logger.info("Received request to list bucket contents (prefix={}, format={}, ndjson={}, encoding={}, backend={})",
+                prefix, format, ndjson, coding, storage.name());
+        boolean compact;
+        try {
+            compact = isCompactFormat(format);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Rejected listing request: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(null);
+        }
+        StreamingResponseBody body = responseOut -> {
+            OutputStream out = responseCompressor.wrap(responseOut, coding);
+            JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+            generator.setRootValueSeparator(null);
+            if (!ndjson) {
+                generator.writeStartArray();
+            }
+            long[] count = {0};
+            try {
+                if (compact) {
+                    listObjects(prefix, objects -> {
+                        try {
+                            generator.writeObject(CompactListing.of(objects));
+                            endEntry(generator, ndjson);
+                            generator.flush();
+                            count[0] += objects.size();
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+                } else {
+                    listKeys(prefix, keys -> {
+                        try {
+                            for (String key : keys) {
+                                generator.writeString(key);
+                                endEntry(generator, ndjson);
+                            }
+                            generator.flush();
+                            count[0] += keys.size();
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+                }
+            } catch (Exception e) {
+                // Once the first page is flushed the status line is committed, so all we
+                // can do is log and cut the stream short
+                logger.error("Error listing bucket contents after {} objects: {}", count[0], e.getMessage(), e);
+                throw e;
+            }
+            if (!ndjson) {
+                generator.writeEndArray();
+            }
+            // Also finishes the compressed stream
+            generator.close();
+            logger.info("Found {} objects", count[0]);
+        };
+
+        return listingResponse(ndjson ? MediaType.APPLICATION_NDJSON : MediaType.APPLICATION_JSON, coding, body);
+    }
+
+    private static void endEntry(JsonGenerator generator, boolean ndjson) throws IOException {
+        if (ndjson) {
+            generator.writeRaw('\n');
+        }
+    }
+
+    private static ResponseEntity<StreamingResponseBody> listingResponse(MediaType contentType, String coding,
+                                                                         StreamingResponseBody body) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(contentType);
+        headers.setVary(List.of(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING));
+        if (coding != null) {
+            headers.add(HttpHeaders.CONTENT_ENCODING, coding);
+        }
+        return ResponseEntity.ok()
+            .headers(headers)
+            .body(body);
+    }
+
+    // Every key under the prefix, page by page, from wherever listings are served
+    private void listKeys(String prefix, Consumer<List<String>> pageConsumer) {
+        if (keyIndex.isFresh()) {
+            keyIndex.listKeyPages(prefix, ListingPage.MAX_PAGE_SIZE, pageConsumer);
+        } else {
+            storage.listBucketPages(prefix, pageConsumer);
+        }
+    }
+
+    // Same as listKeys, with the metadata the listing carries
+    private void listObjects(String prefix, Consumer<List<ObjectSummary>> pageConsumer) {
+        if (keyIndex.isFresh()) {
+            keyIndex.listSummaryPages(prefix, ListingPage.MAX_PAGE_SIZE, pageConsumer);
+        } else {
+            storage.listObjectSummaries(prefix, pageConsumer);
+        }
+    }
+
+    private static boolean isCompactFormat(String format) {
+        if (format == null || format.isEmpty() || format.equals("keys")) {
+            return false;
+        }
+        if (format.equals("compact")) {
+            return true;
+        }
+        throw new IllegalArgumentException("Unknown listing format: " + format);
+    }
+
+    // Paged mode: one bounded page per request, the client follows nextCursor.
+    // With a delimiter this is the folder view: direct children plus common prefixes.
     @GetMapping("/bucket/list")
-    public ResponseEntity<List<String>> getObjects() {
+    public ResponseEntity<StreamingResponseBody> getObjectsPage(@RequestParam(value = "pageSize", required = false) Integer pageSize,
+                                                                @RequestParam(value = "cursor", required = false) String cursor,
+                                                                @RequestParam(value = "prefix", required = false) String prefix,
+                                                                @RequestParam(value = "delimiter", required = false) String delimiter,
+                                                                @RequestParam(value = "format", required = false) String format,
+                                                                @RequestHeader(value = "Accept-Encoding", required = false) String acceptEncoding) {
         try {
-            logger.info("Received request to list bucket contents (demo={})", demoMode);
-            var result = demoMode ? demoService.listFiles() : s3Service.listBucketContents();
-            logger.info("Found {} objects", result.size());
+            boolean compact = isCompactFormat(format);
+            int size = ListingPage.clampPageSize(pageSize);
+            logger.info("Received request to list bucket page (prefix={}, delimiter={}, size={}, format={}, backend={})",
+                    prefix, delimiter, size, format, storage.name());
+            ListingPage page;
+            if (keyIndex.isFresh()) {
+                page = keyIndex.listPage(prefix, delimiter, cursor, size);
+            } else {
+                page = storage.listPage(prefix, delimiter, cursor, size);
+            }
+            logger.info("Found {} objects and {} prefixes in page", page.objects().size(), page.prefixes().size());
 
-            HttpHeaders headers = new HttpHeaders();
-            headers.add(HttpHeaders.CONTENT_TYPE, "application/json");
-            return ResponseEntity.ok()
-                .headers(headers)
-                .body(result);
+            Object result = compact ? CompactListing.Page.of(page) : page;
+            String coding = responseCompressor.negotiate(acceptEncoding);
+            return listingResponse(MediaType.APPLICATION_JSON, coding, out -> {
+                try (OutputStream encoded = responseCompressor.wrap(out, coding)) {
+                    objectMapper.writeValue(encoded, result);
+                }
+            });
+        } catch (IllegalArgumentException e) {
+            logger.warn("Rejected listing request: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(null);
         } catch (Exception e) {
             logger.error("Error listing bucket contents: {}", e.getMessage(), e);
             return ResponseEntity.status(500).body(null);
         }
     }
 
+    // Server-sent events with the keys created, updated and deleted since the client
+    // connected, so it can patch its listing instead of fetching it again
+    @GetMapping(value = "/bucket/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamChanges(
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        if (!changeFeed.isEnabled()) {
+            return ResponseEntity.status(404).body(null);
+        }
+        try {
+            logger.debug("Change feed client connected (Last-Event-ID={})", lastEventId);
+            return ResponseEntity.ok()
+                    .header(HttpHeaders.CACHE_CONTROL, "no-store")
+                    // Stops nginx and similar proxies from holding events back
+                    .header("X-Accel-Buffering", "no")
+                    .body(changeFeed.subscribe(lastEventId));
+        } catch (RejectedExecutionException e) {
+            logger.warn("Rejected change feed client: {}", e.getMessage());
+            return ResponseEntity.status(503).header(HttpHeaders.RETRY_AFTER, "30").body(null);
+        } catch (Exception e) {
+            logger.error("Error opening change feed: {}", e.getMessage(), e);
+            return ResponseEntity.status(500).body(null);
+        }
+    }
+
+    @GetMapping("/bucket/search")
+    public ResponseEntity<KeySearchIndex.SearchResult> searchObjects(
+            @RequestParam("q") String query,
+            @RequestParam(value = "mode", defaultValue = "substring") String mode,
+            @RequestParam(value = "prefix", required = false) String prefix,
+            @RequestParam(value = "limit", defaultValue = "" + KeySearchIndex.DEFAULT_LIMIT) int limit) {
+        try {
+            logger.info("Received search request (q={}, mode={}, prefix={}, limit={})", query, mode, prefix, limit);
+            if (!searchIndex.isReady()) {
+                logger.warn("Search requested before the key index finished warming up");
+                return ResponseEntity.status(503).body(null);
+            }
+
+            KeySearchIndex.Mode searchMode = KeySearchIndex.Mode.valueOf(mode.toUpperCase(Locale.ROOT));
+            KeySearchIndex.SearchResult result = searchIndex.search(query, searchMode, prefix, limit);
+            logger.info("Search matched {} keys (truncated={})", result.keys().size(), result.truncated());
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Rejected search request: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(null);
+        } catch (Exception e) {
+            logger.error("Error searching bucket: {}", e.getMessage(), e);
+            return ResponseEntity.status(500).body(null);
+        }
+    }
+
+    // ZIP of everything under a prefix and/or of the given keys, streamed while it is
+    // built. POST takes the same parameters form-encoded, for selections too long
+    // for a URL. Entries are named relative to the deepest folder they share.
+    @RequestMapping(value = "/bucket/archive", method = {RequestMethod.GET, RequestMethod.POST})
+    public ResponseEntity<StreamingResponseBody> downloadArchive(
+            @RequestParam(value = "prefix", required = false) String prefix,
+            @RequestParam(value = "key", required = false) List<String> keys) {
+        List<String> selected = keys == null ? List.of() : keys;
+        logger.info("Received archive request: prefix: {}, {} keys (backend={})", prefix, selected.size(), storage.name());
+        if (prefix == null && selected.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        List<String> roots = new ArrayList<>(selected);
+        if (prefix != null) {
+            roots.add(prefix);
+        }
+        String base = commonFolder(roots);
+        // A listing never repeats a key, so only the explicit keys need deduplicating,
+        // among themselves and against the listing
+        Set<String> explicit = new LinkedHashSet<>(selected);
+
+        StreamingResponseBody body = out -> {
+            long started = System.currentTimeMillis();
+            try {
+                int entries = archiveStreamer.write(out, base, pageConsumer -> {
+                    if (!explicit.isEmpty()) {
+                        pageConsumer.accept(explicit.stream().map(this::archiveSummary).toList());
+                    }
+                    if (prefix != null) {
+                        listObjects(prefix, page -> pageConsumer.accept(explicit.isEmpty()
+                                ? page
+                                : page.stream().filter(object -> !explicit.contains(object.key())).toList()));
+                    }
+                }, storage);
+                logger.info("Streamed archive of {} entries in {} ms", entries, System.currentTimeMillis() - started);
+            } catch (Exception e) {
+                // The status line is long gone; cutting the stream short leaves a truncated ZIP the client rejects
+                logger.error("Error streaming archive: {}", e.getMessage(), e);
+                throw e;
+            }
+        };
+
+        String folder = base.isEmpty() ? "" : base.substring(0, base.length() - 1);
+        String name = folder.isEmpty() ? "bucket" : folder.substring(folder.lastIndexOf('/') + 1);
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(HttpHeaders.CONTENT_TYPE, "application/zip");
+        // Plain ASCII names stay readable to every client; anything else needs the RFC 5987 form
+        headers.setContentDisposition(StandardCharsets.US_ASCII.newEncoder().canEncode(name)
+                ? ContentDisposition.attachment().filename(name + ".zip").build()
+                : ContentDisposition.attachment().filename(name + ".zip", StandardCharsets.UTF_8).build());
+        return ResponseEntity.ok()
+            .headers(headers)
+            .body(metered(body));
+    }
+
+    // What the index knows about an explicitly selected key; the size is -1 when
+    // only the backend knows it
+    private ObjectSummary archiveSummary(String key) {
+        ObjectSummary summary = keyIndex.isFresh() ? keyIndex.get(key) : null;
+        return summary != null ? summary : new ObjectSummary(key, -1, null, null);
+    }
+
+    // Longest shared folder prefix (ending in '/') of the given keys or prefixes
+    private static String commonFolder(List<String> paths) {
+        String common = paths.get(0);
+        for (String path : paths) {
+            int length = 0;
+            int max = Math.min(common.length(), path.length());
+            while (length < max && common.charAt(length) == path.charAt(length)) {
+                length++;
+            }
+            common = common.substring(0, length);
+        }
+        return common.substring(0, common.lastIndexOf('/') + 1);
+    }
+
     @GetMapping("/bucket/download/**")
-    public ResponseEntity<byte[]> downloadFile(HttpServletRequest request) {
+    public ResponseEntity<StreamingResponseBody> downloadFile(HttpServletRequest request, HttpServletResponse response,
+            @RequestHeader(value = HttpHeaders.RANGE, required = false) String rangeHeader,
+            @RequestHeader(value = HttpHeaders.IF_RANGE, required = false) String ifRange,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
         String path = request.getRequestURI();
         String key = path.substring(path.indexOf("/bucket/download/") + "/bucket/download/".length());
         try {
-            logger.info("Download request for key: {} (demo={})", key, demoMode);
+            logger.info("Download request for key: {}, range: {} (backend={})", key, rangeHeader, storage.name());
 
             // URL decode the key in case it was double-encoded
-            String decodedKey = java.net.URLDecoder.decode(key, "UTF-8");
+            String decodedKey = decodeKey(key);
             logger.debug("Decoded key: {}", decodedKey);
+            String cacheControl = cacheControlPolicy.forKey(decodedKey);
 
-            // Get the file as a byte array
-            byte[] fileContent = demoMode
-                    ? demoService.downloadFile(decodedKey)
-                    : s3Service.downloadFile(decodedKey);
-            logger.debug("File downloaded, size: {} bytes", fileContent.length);
+            // Conditional GET: settle it from the validators alone, before opening the object
+            if (isConditional(request)) {
+                ObjectMetadata current = currentMetadata(decodedKey);
+                long lastModified = current.lastModified() == null ? -1 : current.lastModified().toEpochMilli();
+                if (new ServletWebRequest(request, response).checkNotModified(current.eTag(), lastModified)) {
+                    // checkNotModified has already set the 304 status and the validators
+                    logger.debug("Conditional request for key: {} answered with {}", decodedKey, response.getStatus());
+                    return ResponseEntity.status(response.getStatus())
+                            .header(HttpHeaders.CACHE_CONTROL, cacheControl)
+                            .build();
+                }
+            }
 
-            // Determine content type based on file extension
-            String contentType = determineContentType(decodedKey);
-            logger.debug("Determined content type: {}", contentType);
+            // A Range we cannot use, or one guarded by a stale If-Range, means a full response
+            List<HttpRange> ranges = parseRanges(rangeHeader);
+            if (!ranges.isEmpty() && ifRange != null && !ifRangeMatches(decodedKey, ifRange)) {
+                logger.debug("If-Range validator did not match, sending full content for key: {}", decodedKey);
+                ranges = List.of();
+            }
 
-            // Set headers
-            HttpHeaders headers = new HttpHeaders();
-            headers.add(HttpHeaders.CONTENT_TYPE, contentType);
+            if (ranges.size() > 1) {
+                return downloadMultipleRanges(decodedKey, ranges, cacheControl);
+            }
+
+            // A cached compressed variant only needs the current ETag, from the key index
+            // or a HEAD, so a hit never opens the object at all
+            if (ranges.isEmpty() && compressDownloads && variantCache.isEnabled()) {
+                String coding = responseCompressor.negotiate(acceptEncoding);
+                if (coding != null && variantCache.contains(decodedKey, coding)) {
+                    ObjectMetadata current = currentMetadata(decodedKey);
+                    CompressedVariantCache.Variant variant = variantCache.get(decodedKey, current.eTag(), coding);
+                    if (variant != null) {
+                        logger.debug("Serving key: {} from the compressed variant cache", decodedKey);
+                        return cachedVariant(current, variant, coding, cacheControl);
+                    }
+                }
+            }
+
+            // Open the object (or the single range); the body is streamed to the client, never held in memory
+            HttpRange range = ranges.isEmpty() ? null : ranges.get(0);
+            ObjectContent content = storage.downloadFile(decodedKey, range);
+            // From here on the content is ours: any path that does not hand it to the
+            // response body has to drop it, or the connection stays checked out
+            try {
+                logger.debug("File opened, length: {} bytes, range: {}", content.contentLength(), content.range());
+
+                String contentType = resolveContentType(content.metadata(), decodedKey);
+                logger.debug("Determined content type: {}", contentType);
+
+                // Set headers
+                HttpHeaders headers = new HttpHeaders();
+                headers.add(HttpHeaders.CONTENT_TYPE, contentType);
+                headers.add(HttpHeaders.ACCEPT_RANGES, "bytes");
+                headers.setContentLength(content.contentLength());
+                if (content.metadata().eTag() != null) {
+                    headers.setETag(content.metadata().eTag());
+                }
+                if (content.metadata().lastModified() != null) {
+                    headers.setLastModified(content.metadata().lastModified());
+                }
+                headers.setCacheControl(cacheControl);
+                if (content.range() != null) {
+                    headers.add(HttpHeaders.CONTENT_RANGE, content.range().toContentRange(content.metadata().size()));
+                }
+
+                // Objects stored compressed go out exactly as stored, labelled with their coding
+                String storedEncoding = content.metadata().contentEncoding();
+                if (storedEncoding != null) {
+                    headers.add(HttpHeaders.CONTENT_ENCODING, storedEncoding);
+                } else if (compressDownloads && ResponseCompressor.isCompressible(contentType)) {
+                    headers.setVary(List.of(HttpHeaders.ACCEPT_ENCODING));
+                    // Ranges always address the stored bytes, so only whole objects are compressed
+                    String coding = content.range() == null && content.contentLength() >= compressMinSize
+                            ? responseCompressor.negotiate(acceptEncoding)
+                            : null;
+                    if (coding != null) {
+                        return compressedDownload(decodedKey, content, coding, headers);
+                    }
+                }
+
+                // A local file leaves through the connector's sendfile, which copies it from
+                // the page cache to the socket with FileChannel.transferTo. The connector
+                // reopens the file by name, so a replacement landing in between is served
+                // instead, cut to the length already announced.
+                if (sendfile && content.stream() instanceof FileRegionInputStream region
+                        && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+                    request.setAttribute(SENDFILE_FILENAME, region.file().toString());
+                    request.setAttribute(SENDFILE_START, region.position());
+                    request.setAttribute(SENDFILE_END, region.position() + region.remaining());
+                    content.close();
+                    bucketMetrics.countDownload(content.contentLength());
+                    logger.debug("Handed {} bytes of key: {} to sendfile", content.contentLength(), decodedKey);
+                    return ResponseEntity.status(content.range() != null ? 206 : 200)
+                            .headers(headers)
+                            .build();
+                }
+
+                StreamingResponseBody body = out -> {
+                    long written = content.transferTo(out);
+                    logger.debug("Streamed {} bytes for key: {}", written, decodedKey);
+                };
+                return ResponseEntity.status(content.range() != null ? 206 : 200)
+                        .headers(headers)
+                        .body(metered(body));
+            } catch (Exception e) {
+                discard(content);
+                throw e;
+            }
+        } catch (RangeNotSatisfiableException e) {
+            logger.info("Range not satisfiable: {}", e.getMessage());
+            return ResponseEntity.status(416)
+                    .header(HttpHeaders.CONTENT_RANGE, "bytes */" + e.getObjectSize())
+                    .build();
+        } catch (Exception e) {
+            logger.error("Error downloading file: {}", e.getMessage(), e);
+            byte[] message = ("Error downloading file: " + e.getMessage()).getBytes();
+            return ResponseEntity.status(500).body(out -> out.write(message));
+        }
+    }
+
+    // Drops an opened object that will not be sent, without draining the rest of it
+    private static void discard(ObjectContent content) {
+        try {
+            content.abort();
+        } catch (IOException | RuntimeException e) {
+            logger.debug("Ignoring failure to abort download: {}", e.getMessage());
+        }
+    }
+
+    // A window of lines of a text object: `lines` lines from line `from` (1-based).
+    // Only the bytes around the window are read from the backend, so this works for
+    // multi-GB logs; see TextPreviewService for the line index behind it.
+    @GetMapping("/bucket/preview/**")
+    public ResponseEntity<StreamingResponseBody> previewText(HttpServletRequest request,
+            @RequestParam(value = "from", defaultValue = "1") long from,
+            @RequestParam(value = "lines", defaultValue = "200") int lines,
+            @RequestHeader(value = "Accept-Encoding", required = false) String acceptEncoding) {
+        String path = request.getRequestURI();
+        String key = path.substring(path.indexOf("/bucket/preview/") + "/bucket/preview/".length());
+        try {
+            if (from < 1 || lines < 1 || lines > textPreview.maxLines()) {
+                logger.warn("Rejected preview request for key: {} (from={}, lines={})", key, from, lines);
+                return ResponseEntity.badRequest().body(null);
+            }
+            String decodedKey = decodeKey(key);
+            logger.info("Preview request for key: {}, lines {}+{} (backend={})", decodedKey, from, lines, storage.name());
+
+            TextPreviewService.Window window = textPreview.read(decodedKey, currentMetadata(decodedKey), from, lines);
+            String coding = responseCompressor.negotiate(acceptEncoding);
+            return listingResponse(MediaType.APPLICATION_JSON, coding, out -> {
+                try (OutputStream encoded = responseCompressor.wrap(out, coding)) {
+                    objectMapper.writeValue(encoded, window);
+                }
+            });
+        } catch (Exception e) {
+            logger.error("Error previewing file: {}", e.getMessage(), e);
+            return ResponseEntity.status(500).body(null);
+        }
+    }
 
+    // A downscaled rendition of an image, its longest side one of the configured
+    // sizes (the smallest when none is asked for). Answered from the validators alone
+    // when the client already has it; otherwise from the rendition cache, or
+    // rendered on the bounded thumbnail pool. A full pool or a render that outlasts
+    // the timeout is a 503 with Retry-After, anything that cannot be decoded a 415.
+    @GetMapping("/bucket/thumbnail/**")
+    public ResponseEntity<byte[]> getThumbnail(HttpServletRequest request, HttpServletResponse response,
+                                               @RequestParam(value = "size", required = false) Integer size) {
+        String path = request.getRequestURI();
+        String key = path.substring(path.indexOf("/bucket/thumbnail/") + "/bucket/thumbnail/".length());
+        try {
+            if (!thumbnails.isEnabled()) {
+                return ResponseEntity.status(404).body(null);
+            }
+            int width = size == null ? thumbnails.sizes().get(0) : size;
+            if (!thumbnails.sizes().contains(width)) {
+                logger.warn("Rejected thumbnail size {}; available: {}", size, thumbnails.sizes());
+                return ResponseEntity.badRequest().body(null);
+            }
+            String decodedKey = decodeKey(key);
+            logger.debug("Thumbnail request for key: {}, size: {}", decodedKey, width);
+            String cacheControl = cacheControlPolicy.forKey(decodedKey);
+
+            ObjectMetadata source = currentMetadata(decodedKey);
+            String eTag = source.eTag() == null ? null : ThumbnailService.eTag(source.eTag(), width);
+            if (eTag != null && new ServletWebRequest(request, response).checkNotModified(eTag)) {
+                return ResponseEntity.status(response.getStatus())
+                        .header(HttpHeaders.CACHE_CONTROL, cacheControl)
+                        .build();
+            }
+
+            ThumbnailService.Rendition rendition = thumbnails.get(decodedKey, source, width);
+            HttpHeaders headers = new HttpHeaders();
+            headers.add(HttpHeaders.CONTENT_TYPE, rendition.contentType());
+            if (rendition.sourceETag() != null) {
+                headers.setETag(ThumbnailService.eTag(rendition.sourceETag(), width));
+            }
+            headers.setCacheControl(cacheControl);
             return ResponseEntity.ok()
                     .headers(headers)
-                    .body(fileContent);
+                    .body(rendition.data());
+        } catch (UnrenderableImageException e) {
+            logger.info("{}", e.getMessage());
+            return ResponseEntity.status(415).body(null);
+        } catch (RejectedExecutionException e) {
+            logger.warn("Thumbnail queue full, turning away key: {}", key);
+            return ResponseEntity.status(503)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(null);
+        } catch (TimeoutException e) {
+            return ResponseEntity.status(503)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(null);
         } catch (Exception e) {
-            logger.error("Error downloading file: {}", e.getMessage(), e);
-            return ResponseEntity.status(500).body(("Error downloading file: " + e.getMessage()).getBytes());
+            logger.error("Error rendering thumbnail: {}", e.getMessage(), e);
+            return ResponseEntity.status(500).body(null);
+        }
+    }
+
+    // The whole object in a content coding. Small objects are compressed once and the
+    // result kept in the variant cache; larger ones are compressed as they stream.
+    // The ETag turns weak, as the body is no longer the stored bytes: it still
+    // validates conditional GETs but no longer matches If-Range.
+    private ResponseEntity<StreamingResponseBody> cachedVariant(ObjectMetadata current,
+                                                                CompressedVariantCache.Variant variant, String coding,
+                                                                String cacheControl) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(HttpHeaders.CONTENT_TYPE, variant.contentType());
+        headers.add(HttpHeaders.ACCEPT_RANGES, "bytes");
+        headers.setContentLength(variant.data().length);
+        headers.setETag(variant.eTag().startsWith("W/") ? variant.eTag() : "W/" + variant.eTag());
+        if (current.lastModified() != null) {
+            headers.setLastModified(current.lastModified());
+        }
+        headers.setCacheControl(cacheControl);
+        headers.setVary(List.of(HttpHeaders.ACCEPT_ENCODING));
+        headers.add(HttpHeaders.CONTENT_ENCODING, coding);
+        byte[] data = variant.data();
+        return ResponseEntity.ok()
+                .headers(headers)
+                .body(metered(out -> out.write(data)));
+    }
+
+    private ResponseEntity<StreamingResponseBody> compressedDownload(String key, ObjectContent content, String coding,
+                                                                     HttpHeaders headers) throws IOException {
+        String eTag = content.metadata().eTag();
+        if (eTag != null && !eTag.startsWith("W/")) {
+            headers.setETag("W/" + eTag);
+        }
+        headers.add(HttpHeaders.CONTENT_ENCODING, coding);
+
+        // Cached variants were looked up before the object was opened; this is a miss
+        if (variantCache.isCacheable(content.contentLength(), eTag)) {
+            byte[] body;
+            try (InputStream in = content.stream()) {
+                body = in.readAllBytes();
+            }
+            byte[] data = variantCache.compress(key, eTag, headers.getFirst(HttpHeaders.CONTENT_TYPE), coding, body);
+            logger.debug("Compressed key: {} with {} from {} to {} bytes", key, coding, body.length, data.length);
+            headers.setContentLength(data.length);
+            return ResponseEntity.ok()
+                    .headers(headers)
+                    .body(metered(out -> out.write(data)));
+        }
+
+        // The compressed length is unknown until the end, so the response is chunked
+        headers.remove(HttpHeaders.CONTENT_LENGTH);
+        StreamingResponseBody body = out -> {
+            try (OutputStream compressed = responseCompressor.wrap(out, coding)) {
+                long read = content.transferTo(compressed);
+                logger.debug("Streamed {} bytes for key: {} compressed with {}", read, key, coding);
+            }
+        };
+        return ResponseEntity.ok()
+                .headers(headers)
+                .body(metered(body));
+    }
+
+    // Several ranges go out as one multipart/byteranges body. S3 only serves one
+    // range per GET, so each part is its own ranged read, opened as it is written.
+    private ResponseEntity<StreamingResponseBody> downloadMultipleRanges(String key, List<HttpRange> ranges,
+                                                                         String cacheControl) throws Exception {
+        ObjectMetadata metadata = storage.headObject(key);
+        long size = metadata.size();
+
+        List<ByteRange> resolved = new ArrayList<>(ranges.size());
+        for (HttpRange range : ranges) {
+            ByteRange part = ByteRange.resolve(range, size);
+            if (part != null) {
+                resolved.add(part);
+            } else {
+                // Unsatisfiable parts are dropped; only if none are left is the whole request unsatisfiable
+                logger.debug("Skipping unsatisfiable range {} for key: {}", range, key);
+            }
+        }
+        if (resolved.isEmpty()) {
+            throw new RangeNotSatisfiableException(key, size);
+        }
+
+        String contentType = resolveContentType(metadata, key);
+        String boundary = UUID.randomUUID().toString();
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(HttpHeaders.CONTENT_TYPE, "multipart/byteranges; boundary=" + boundary);
+        headers.add(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (metadata.eTag() != null) {
+            headers.setETag(metadata.eTag());
+        }
+        if (metadata.lastModified() != null) {
+            headers.setLastModified(metadata.lastModified());
+        }
+        headers.setCacheControl(cacheControl);
+
+        StreamingResponseBody body = out -> {
+            for (ByteRange part : resolved) {
+                String partHeader = "\r\n--" + boundary + "\r\n"
+                        + HttpHeaders.CONTENT_TYPE + ": " + contentType + "\r\n"
+                        + HttpHeaders.CONTENT_RANGE + ": " + part.toContentRange(size) + "\r\n\r\n";
+                out.write(partHeader.getBytes(StandardCharsets.US_ASCII));
+                HttpRange partRange = HttpRange.createByteRange(part.start(), part.end());
+                try {
+                    ObjectContent content = storage.downloadFile(key, partRange);
+                    content.transferTo(out);
+                } catch (IOException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new IOException("Failed to read range " + part + " of " + key, e);
+                }
+            }
+            out.write(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+            logger.debug("Streamed {} ranges for key: {}", resolved.size(), key);
+        };
+        return ResponseEntity.status(206)
+                .headers(headers)
+                .body(metered(body));
+    }
+
+    // Object bodies count towards the download metrics; listings and errors do not
+    private StreamingResponseBody metered(StreamingResponseBody body) {
+        return out -> {
+            try (OutputStream metered = bucketMetrics.meterDownload(out)) {
+                body.writeTo(metered);
+            }
+        };
+    }
+
+    private static List<HttpRange> parseRanges(String rangeHeader) {
+        if (rangeHeader == null || rangeHeader.isEmpty()) {
+            return List.of();
+        }
+        try {
+            List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+            return ranges.size() <= MAX_RANGES ? ranges : List.of();
+        } catch (IllegalArgumentException e) {
+            // A malformed Range header is ignored rather than rejected
+            logger.debug("Ignoring invalid Range header: {}", rangeHeader);
+            return List.of();
+        }
+    }
+
+    // If-Range carries either an ETag or an HTTP date; the range only applies
+    // while the object still matches it
+    private boolean ifRangeMatches(String key, String ifRange) throws Exception {
+        ObjectMetadata metadata = currentMetadata(key);
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return !ifRange.startsWith("W/") && ifRange.equals(metadata.eTag());
+        }
+        try {
+            Instant since = ZonedDateTime.parse(ifRange, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+            return metadata.lastModified() != null && !metadata.lastModified().isAfter(since);
+        } catch (DateTimeParseException e) {
+            return false;
         }
     }
 
+    private static boolean isConditional(HttpServletRequest request) {
+        return request.getHeader(HttpHeaders.IF_NONE_MATCH) != null
+                || request.getHeader(HttpHeaders.IF_MODIFIED_SINCE) != null;
+    }
+
+    // Validators of the object as it is now. The key index holds the ETag and
+    // Last-Modified of every key and is updated by every write through the app, so
+    // a fresh index answers without a round trip; anything else costs a HeadObject.
+    private ObjectMetadata currentMetadata(String key) throws Exception {
+        if (validateFromIndex && keyIndex.isFresh()) {
+            ObjectSummary summary = keyIndex.get(key);
+            if (summary != null && summary.eTag() != null) {
+                return new ObjectMetadata(key, summary.size(), null, summary.eTag(), summary.lastModified());
+            }
+        }
+        return storage.headObject(key);
+    }
+
+    // Prefer the stored content type, unless it is missing or the generic default
+    private String resolveContentType(ObjectMetadata metadata, String key) {
+        String contentType = metadata.contentType();
+        if (contentType == null || contentType.isEmpty()
+                || contentType.equals("binary/octet-stream") || contentType.equals("application/octet-stream")) {
+            return determineContentType(key);
+        }
+        return contentType;
+    }
+
     @PutMapping("/bucket/update/**")
     public ResponseEntity<String> updateFile(HttpServletRequest request, @RequestBody String content) {
         String path = request.getRequestURI();
         String key = path.substring(path.indexOf("/bucket/update/") + "/bucket/update/".length());
         try {
-            logger.info("Received file update request for key: {} (demo={})", key, demoMode);
+            logger.info("Received file update request for key: {} (backend={})", key, storage.name());
 
             // URL decode the key in case it was double-encoded
-            String decodedKey = java.net.URLDecoder.decode(key, "UTF-8");
+            String decodedKey = decodeKey(key);
             logger.debug("Decoded key: {}", decodedKey);
 
             // Determine content type based on file extension
@@ -120,14 +854,15 @@ public class BucketController {
             byte[] fileContent = content.getBytes();
 
             // Upload (overwriting the existing file)
-            if (demoMode) {
-                demoService.uploadFile(decodedKey, fileContent, contentType);
-            } else {
-                s3Service.uploadFile(decodedKey, fileContent, contentType);
-            }
+            storage.uploadFile(decodedKey, fileContent, contentType);
+            thumbnails.invalidate(decodedKey);
 
             logger.info("Updated file successfully with key: {}", key);
             return ResponseEntity.ok("File updated successfully: " + key);
+        } catch (StorageLimitExceededException e) {
+            logger.warn("Rejected file update: {}", e.getMessage());
+            return ResponseEntity.status(413)
+                    .body("Error updating file: " + e.getMessage());
         } catch (Exception e) {
             logger.error("Error updating file: {}", e.getMessage(), e);
             return ResponseEntity.status(500)
@@ -139,17 +874,16 @@ public class BucketController {
     public ResponseEntity<String> uploadFile(@RequestParam("file") MultipartFile file,
                                             @RequestParam("key") String key) {
         try {
-            logger.info("Received file upload request - file size: {}, name: {}, key: {} (demo={})",
-                    file.getSize(), file.getOriginalFilename(), key, demoMode);
+            logger.info("Received file upload request - file size: {}, name: {}, key: {} (backend={})",
+                    file.getSize(), file.getOriginalFilename(), key, storage.name());
 
-            byte[] fileContent = file.getBytes();
             String contentType = file.getContentType();
 
-            if (demoMode) {
-                demoService.uploadFile(key, fileContent, contentType);
-            } else {
-                s3Service.uploadFile(key, fileContent, contentType);
+            // Stream the part straight through; large files become a parallel multipart upload
+            try (InputStream in = bucketMetrics.meterUpload(file.getInputStream())) {
+                storage.uploadFile(key, in, file.getSize(), contentType);
             }
+            thumbnails.invalidate(key);
 
             logger.info("Uploaded file successfully with key: {}", key);
             return ResponseEntity.ok("File uploaded successfully: " + key);
@@ -157,6 +891,44 @@ public class BucketController {
             logger.error("Error uploading file due to IO exception: {}", e.getMessage(), e);
             return ResponseEntity.status(500)
                     .body("Error uploading file: " + e.getMessage());
+        } catch (StorageLimitExceededException e) {
+            logger.warn("Rejected upload: {}", e.getMessage());
+            return ResponseEntity.status(413)
+                    .body("Error uploading file: " + e.getMessage());
+        } catch (Exception e) {
+            logger.error("Error uploading file: {}", e.getMessage(), e);
+            return ResponseEntity.status(500)
+                    .body("Error uploading file: " + e.getMessage());
+        }
+    }
+
+    // Raw upload: the request body is the file. Unlike the multipart form upload
+    // nothing is staged on disk first, the body streams directly into S3 parts.
+    @PutMapping("/bucket/upload/**")
+    public ResponseEntity<String> uploadStream(HttpServletRequest request) {
+        String path = request.getRequestURI();
+        String key = path.substring(path.indexOf("/bucket/upload/") + "/bucket/upload/".length());
+        try {
+            // URL decode the key in case it was double-encoded
+            String decodedKey = decodeKey(key);
+            long size = request.getContentLengthLong();
+            String contentType = request.getContentType();
+            if (contentType == null || contentType.isEmpty()) {
+                contentType = determineContentType(decodedKey);
+            }
+            logger.info("Received streaming upload request - size: {}, key: {} (backend={})", size, decodedKey, storage.name());
+
+            try (InputStream in = bucketMetrics.meterUpload(request.getInputStream())) {
+                storage.uploadFile(decodedKey, in, size, contentType);
+            }
+            thumbnails.invalidate(decodedKey);
+
+            logger.info("Uploaded file successfully with key: {}", decodedKey);
+            return ResponseEntity.ok("File uploaded successfully: " + decodedKey);
+        } catch (StorageLimitExceededException e) {
+            logger.warn("Rejected upload: {}", e.getMessage());
+            return ResponseEntity.status(413)
+                    .body("Error uploading file: " + e.getMessage());
         } catch (Exception e) {
             logger.error("Error uploading file: {}", e.getMessage(), e);
             return ResponseEntity.status(500)
@@ -169,16 +941,13 @@ public class BucketController {
         String path = request.getRequestURI();
         String key = path.substring(path.indexOf("/bucket/delete/") + "/bucket/delete/".length());
         try {
-            logger.info("Received request to delete file with key: {} (demo={})", key, demoMode);
+            logger.info("Received request to delete file with key: {} (backend={})", key, storage.name());
 
             // URL decode the key in case it was double-encoded
-            String decodedKey = java.net.URLDecoder.decode(key, "UTF-8");
+            String decodedKey = decodeKey(key);
 
-            if (demoMode) {
-                demoService.deleteFile(decodedKey);
-            } else {
-                s3Service.deleteFile(decodedKey);
-            }
+            storage.deleteFile(decodedKey);
+            thumbnails.invalidate(decodedKey);
 
             logger.info("Deleted file successfully with key: {}", key);
             return ResponseEntity.ok("File deleted successfully: " + key);
@@ -189,6 +958,38 @@ public class BucketController {
         }
     }
 
+    // Deletes explicit keys and/or everything under a prefix. The response lists the
+    // outcome per key; a partial failure is still a 200 with entries under "failed".
+    @PostMapping("/bucket/delete-batch")
+    public ResponseEntity<BatchDeleteReport> deleteBatch(@RequestBody BatchDeleteRequest body) {
+        List<String> keys = body.keys() == null ? List.of() : body.keys();
+        String prefix = body.prefix();
+        logger.info("Received batch delete request: {} keys, prefix: {} (backend={})", keys.size(), prefix, storage.name());
+        if (prefix != null && prefix.isEmpty()) {
+            // An empty prefix would be the whole bucket
+            logger.warn("Rejected batch delete with an empty prefix");
+            return ResponseEntity.badRequest().body(null);
+        }
+
+        try {
+            BatchDeleteReport report = new BatchDeleteReport();
+            if (!keys.isEmpty()) {
+                report.addAll(storage.deleteFiles(keys));
+            }
+            if (prefix != null) {
+                report.addAll(storage.deleteByPrefix(prefix));
+            }
+            report.deleted().forEach(thumbnails::invalidate);
+
+            logger.info("Batch delete finished: {} deleted, {} failed", report.deleted().size(),
+                    report.failed().size());
+            return ResponseEntity.ok(report);
+        } catch (Exception e) {
+            logger.error("Error in batch delete: {}", e.getMessage(), e);
+            return ResponseEntity.status(500).body(null);
+        }
+    }
+
     @GetMapping("/api/status")
     public ResponseEntity<Map<String, Object>> getStatus() {
         logger.info("API status check requested");
@@ -197,26 +998,53 @@ public class BucketController {
         status.put("timestamp", new java.util.Date().toString());
         status.put("demoMode", demoMode);
 
+        status.put("bucketIndexFresh", keyIndex.isFresh());
+        status.put("backend", storage.name());
+        if (storage instanceof S3Service && contentCache.isEnabled()) {
+            status.put("contentCache", contentCache.stats());
+        }
+        if (compressDownloads && variantCache.isEnabled()) {
+            status.put("compressedVariants", variantCache.stats());
+        }
+        if (thumbnails.isEnabled()) {
+            status.put("thumbnails", thumbnails.stats());
+        }
+        status.put("textPreview", textPreview.stats());
+        if (changeFeed.isEnabled()) {
+            status.put("changeFeed", changeFeed.stats());
+        }
+
+        // Both parts are O(1): a cached HeadBucket result and incrementally maintained counters
         if (demoMode) {
             status.put("bucketConnection", "demo");
-            status.put("bucketItemCount", demoService.listFiles().size());
         } else {
-            try {
-                List<String> bucketItems = s3Service.listBucketContents();
-                status.put("bucketConnection", "ok");
-                status.put("bucketItemCount", bucketItems.size());
-                logger.info("API status: bucket connection successful, found {} items", bucketItems.size());
-            } catch (Exception e) {
-                logger.error("API status: bucket connection failed: {}", e.getMessage(), e);
-                status.put("bucketConnection", "error");
-                status.put("bucketError", e.getMessage());
+            BucketHealthIndicator.Check check = bucketHealth.check();
+            status.put("bucketConnection", check.up() ? "ok" : "error");
+            status.put("bucketCheckedAt", check.checkedAt().toString());
+            if (!check.up()) {
+                status.put("bucketError", check.error());
             }
         }
+        if (bucketStats.isAvailable()) {
+            status.put("bucketItemCount", bucketStats.getObjectCount());
+            status.put("bucketTotalBytes", bucketStats.getTotalBytes());
+        } else if (storage instanceof DemoService demoService) {
+            status.put("bucketItemCount", demoService.getStore().size());
+            status.put("bucketTotalBytes", demoService.getStore().usedBytes());
+        }
+        if (storage instanceof DemoService demoService) {
+            status.put("demoStoreLimitBytes", demoService.getStore().maxBytes());
+        }
 
         return ResponseEntity.ok(status);
     }
 
-    private String determineContentType(String filename) {
+    // Keys arrive URL encoded in the request path, possibly twice over
+    static String decodeKey(String key) {
+        return java.net.URLDecoder.decode(key, StandardCharsets.UTF_8);
+    }
+
+    static String determineContentType(String filename) {
         String extension = "";
         int i = filename.lastIndexOf('.');
         if (i > 0) {
@@ -0,0 +1,74 @@
+package com.example.bucketbrowser;
+
+import java.time.Instant;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+// Bucket connectivity for /actuator/health and /api/status. For S3 the probe is a
+// HeadBucket, the cheapest authenticated call S3 has; its result is reused for a
+// short while, so a burst of probes costs at most one S3 request per interval.
+@Component
+public class BucketHealthIndicator implements HealthIndicator {
+    private static final Logger logger = LoggerFactory.getLogger(BucketHealthIndicator.class);
+
+    public record Check(boolean up, String error, Instant checkedAt) {
+    }
+
+    @Value("${bucket.health.cache-ms:10000}")
+    private long cacheMs;
+
+    private final StorageBackend storage;
+    private final BucketStats stats;
+    private volatile Check last;
+
+    @Autowired
+    public BucketHealthIndicator(StorageBackend storage, BucketStats stats) {
+        this.storage = storage;
+        this.stats = stats;
+    }
+
+    public Check check() {
+        Check check = last;
+        if (check != null && System.currentTimeMillis() - check.checkedAt().toEpochMilli() < cacheMs) {
+            return check;
+        }
+        synchronized (this) {
+            // Another caller may have refreshed it while we waited
+            check = last;
+            if (check != null && System.currentTimeMillis() - check.checkedAt().toEpochMilli() < cacheMs) {
+                return check;
+            }
+            try {
+                storage.checkHealth();
+                check = new Check(true, null, Instant.now());
+            } catch (Exception e) {
+                logger.warn("Bucket health check failed: {}", e.getMessage());
+                check = new Check(false, e.getMessage(), Instant.now());
+            }
+            last = check;
+            return check;
+        }
+    }
+
+    @Override
+    public Health health() {
+        if (storage instanceof DemoService) {
+            return Health.up().withDetail("mode", "demo").build();
+        }
+        Check check = check();
+        Health.Builder builder = check.up() ? Health.up() : Health.down().withDetail("error", check.error());
+        builder.withDetail("backend", storage.name())
+                .withDetail("checkedAt", check.checkedAt().toString());
+        if (stats.isAvailable()) {
+            builder.withDetail("objectCount", stats.getObjectCount())
+                    .withDetail("totalBytes", stats.getTotalBytes());
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.bucketbrowser;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.core.interceptor.Context;
+import software.amazon.awssdk.core.interceptor.ExecutionAttribute;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.ExecutionInterceptor;
+import software.amazon.awssdk.core.interceptor.SdkExecutionAttribute;
+import software.amazon.awssdk.core.sync.RequestBody;
+
+// Metrics for S3 calls and for the bodies the app streams in and out. S3 calls are
+// measured by an SDK interceptor, so every operation the S3Service makes is covered
+// without wrapping each call site. For streamed GETs the SDK finishes the call once
+// the response headers arrive, so their timer measures time to first byte.
+@Component
+public class BucketMetrics implements ExecutionInterceptor {
+
+    private static final ExecutionAttribute<Long> STARTED_NANOS = new ExecutionAttribute<>("BucketMetricsStartedNanos");
+
+    private final MeterRegistry registry;
+    private final AtomicInteger activeRequests = new AtomicInteger();
+    private final AtomicInteger activeUploads = new AtomicInteger();
+    private final AtomicInteger activeDownloads = new AtomicInteger();
+    private final Counter s3BytesSent;
+    private final Counter s3BytesReceived;
+    private final Counter uploadBytes;
+    private final Counter downloadBytes;
+
+    @Autowired
+    public BucketMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        registry.gauge("bucket.s3.requests.active", activeRequests);
+        registry.gauge("bucket.transfers.active", Tags.of("direction", "upload"), activeUploads);
+        registry.gauge("bucket.transfers.active", Tags.of("direction", "download"), activeDownloads);
+        this.s3BytesSent = bytesCounter("bucket.s3.bytes", "sent");
+        this.s3BytesReceived = bytesCounter("bucket.s3.bytes", "received");
+        this.uploadBytes = bytesCounter("bucket.transfer.bytes", "upload");
+        this.downloadBytes = bytesCounter("bucket.transfer.bytes", "download");
+    }
+
+    private Counter bytesCounter(String name, String direction) {
+        return Counter.builder(name)
+                .baseUnit("bytes")
+                .tag("direction", direction)
+                .register(registry);
+    }
+
+    @Override
+    public void beforeExecution(Context.BeforeExecution context, ExecutionAttributes executionAttributes) {
+        executionAttributes.putAttribute(STARTED_NANOS, System.nanoTime());
+        activeRequests.incrementAndGet();
+    }
+
+    @Override
+    public void afterExecution(Context.AfterExecution context, ExecutionAttributes executionAttributes) {
+        finish(executionAttributes, "success");
+        context.requestBody()
+                .flatMap(RequestBody::optionalContentLength)
+                .ifPresent(s3BytesSent::increment);
+        // The length S3 announced; a body the client abandons is not read to the end
+        context.httpResponse().firstMatchingHeader("Content-Length").ifPresent(length -> {
+            try {
+                s3BytesReceived.increment(Long.parseLong(length));
+            } catch (NumberFormatException e) {
+                // Not worth failing the request over
+            }
+        });
+    }
+
+    @Override
+    public void onExecutionFailure(Context.FailedExecution context, ExecutionAttributes executionAttributes) {
+        Throwable failure = context.exception();
+        // A conditional GET answered with 304 did its job
+        if (failure instanceof AwsServiceException serviceException && serviceException.statusCode() == 304) {
+            finish(executionAttributes, "not_modified");
+            return;
+        }
+        finish(executionAttributes, "error");
+        Counter.builder("bucket.s3.errors")
+                .tag("operation", operation(executionAttributes))
+                .tag("code", errorCode(failure))
+                .register(registry)
+                .increment();
+    }
+
+    private void finish(ExecutionAttributes executionAttributes, String outcome) {
+        activeRequests.decrementAndGet();
+        Long started = executionAttributes.getAttribute(STARTED_NANOS);
+        if (started == null) {
+            return;
+        }
+        Timer.builder("bucket.s3.requests")
+                .tag("operation", operation(executionAttributes))
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+    }
+
+    private static String operation(ExecutionAttributes executionAttributes) {
+        String operation = executionAttributes.getAttribute(SdkExecutionAttribute.OPERATION_NAME);
+        return operation == null ? "unknown" : operation;
+    }
+
+    // The S3 error code where S3 sent one, the HTTP status for bodiless errors such
+    // as a HEAD 404, and the exception type for failures that never reached S3
+    private static String errorCode(Throwable failure) {
+        if (failure instanceof AwsServiceException serviceException) {
+            if (serviceException.awsErrorDetails() != null && serviceException.awsErrorDetails().errorCode() != null) {
+                return serviceException.awsErrorDetails().errorCode();
+            }
+            return String.valueOf(serviceException.statusCode());
+        }
+        return failure.getClass().getSimpleName();
+    }
+
+    // Counts what is read through the stream as upload bytes, and the upload as in
+    // progress until the stream is closed
+    public InputStream meterUpload(InputStream in) {
+        activeUploads.incrementAndGet();
+        AtomicBoolean closed = new AtomicBoolean(false);
+        return new FilterInputStream(in) {
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b >= 0) {
+                    uploadBytes.increment();
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int count = super.read(b, off, len);
+                if (count > 0) {
+                    uploadBytes.increment(count);
+                }
+                return count;
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (closed.compareAndSet(false, true)) {
+                    activeUploads.decrementAndGet();
+                }
+                super.close();
+            }
+        };
+    }
+
+    // For bodies the container sends itself, such as files handed to sendfile
+    public void countDownload(long bytes) {
+        downloadBytes.increment(bytes);
+    }
+
+    // Counts what is written through the stream as download bytes, and the download
+    // as in progress until the stream is closed. Closing leaves the response open.
+    public OutputStream meterDownload(OutputStream out) {
+        activeDownloads.incrementAndGet();
+        AtomicBoolean closed = new AtomicBoolean(false);
+        return new FilterOutputStream(out) {
+            @Override
+            public void write(int b) throws IOException {
+                out.write(b);
+                downloadBytes.increment();
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+                downloadBytes.increment(len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (closed.compareAndSet(false, true)) {
+                    activeDownloads.decrementAndGet();
+                    out.flush();
+                }
+            }
+        };
+    }
+}
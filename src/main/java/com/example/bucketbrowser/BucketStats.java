@@ -0,0 +1,83 @@
+package com.example.bucketbrowser;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+
+// Object count and total size of the bucket, kept up to date from key index
+// events. App writes adjust them immediately and every reconcile corrects them
+// for outside writes, so reading them is O(1). After each full reconcile they are
+// recounted from the index, so a delta lost to a race cannot skew them for good.
+@Component
+public class BucketStats implements KeyIndex.Listener, MeterBinder {
+
+    private final KeyIndex keyIndex;
+    private final AtomicLong objectCount = new AtomicLong();
+    private final AtomicLong totalBytes = new AtomicLong();
+
+    @Autowired
+    public BucketStats(KeyIndex keyIndex) {
+        this.keyIndex = keyIndex;
+    }
+
+    @PostConstruct
+    public void init() {
+        keyIndex.addListener(this);
+    }
+
+    // The numbers only describe the bucket once the index has been through a full reconcile
+    public boolean isAvailable() {
+        return keyIndex.isReady();
+    }
+
+    public long getObjectCount() {
+        return objectCount.get();
+    }
+
+    public long getTotalBytes() {
+        return totalBytes.get();
+    }
+
+    // NaN until the numbers are available, rather than a misleading zero
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("bucket.objects", this, stats -> stats.isAvailable() ? stats.getObjectCount() : Double.NaN)
+                .register(registry);
+        Gauge.builder("bucket.size", this, stats -> stats.isAvailable() ? stats.getTotalBytes() : Double.NaN)
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    @Override
+    public void reconciled() {
+        long[] totals = new long[2];
+        keyIndex.listSummaryPages(null, 1000, page -> {
+            for (ObjectSummary summary : page) {
+                totals[0]++;
+                totals[1] += summary.size();
+            }
+        });
+        objectCount.set(totals[0]);
+        totalBytes.set(totals[1]);
+    }
+
+    @Override
+    public void keyChanged(String key, ObjectSummary previous, ObjectSummary current) {
+        if (previous == null) {
+            objectCount.incrementAndGet();
+        } else {
+            totalBytes.addAndGet(-previous.size());
+        }
+        if (current == null) {
+            objectCount.decrementAndGet();
+        } else {
+            totalBytes.addAndGet(current.size());
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.bucketbrowser;
+
+import org.springframework.http.HttpRange;
+
+// A resolved, inclusive byte range of an object
+public record ByteRange(long start, long end) {
+
+    // Resolves a requested range against the object size, or returns null when the
+    // range lies entirely outside the object
+    public static ByteRange resolve(HttpRange range, long objectSize) {
+        if (objectSize <= 0) {
+            return null;
+        }
+        try {
+            long start = range.getRangeStart(objectSize);
+            long end = range.getRangeEnd(objectSize);
+            return start < objectSize && start <= end ? new ByteRange(start, end) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    public long length() {
+        return end - start + 1;
+    }
+
+    // Value for a ranged GetObject request
+    public String toRangeHeader() {
+        return "bytes=" + start + "-" + end;
+    }
+
+    // Value for the Content-Range response header
+    public String toContentRange(long objectSize) {
+        return "bytes " + start + "-" + end + "/" + objectSize;
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.bucketbrowser;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+// Cache-Control header for downloads, chosen by the longest matching key prefix:
+//   bucket.cache-control.rules[0].prefix=images/
+//   bucket.cache-control.rules[0].policy=private, max-age=86400
+@Component
+@ConfigurationProperties(prefix = "bucket.cache-control")
+public class CacheControlPolicy {
+
+    public static class Rule {
+        private String prefix = "";
+        private String policy;
+
+        public String getPrefix() {
+            return prefix;
+        }
+
+        public void setPrefix(String prefix) {
+            this.prefix = prefix;
+        }
+
+        public String getPolicy() {
+            return policy;
+        }
+
+        public void setPolicy(String policy) {
+            this.policy = policy;
+        }
+    }
+
+    // Revalidate on every use, which the ETag check turns into a cheap 304
+    private String defaultPolicy = "private, no-cache";
+    private List<Rule> rules = new ArrayList<>();
+
+    public String getDefaultPolicy() {
+        return defaultPolicy;
+    }
+
+    public void setDefaultPolicy(String defaultPolicy) {
+        this.defaultPolicy = defaultPolicy;
+    }
+
+    public List<Rule> getRules() {
+        return rules;
+    }
+
+    public void setRules(List<Rule> rules) {
+        this.rules = rules;
+    }
+
+    public String forKey(String key) {
+        Rule best = null;
+        for (Rule rule : rules) {
+            if (rule.getPolicy() != null && key.startsWith(rule.getPrefix())
+                    && (best == null || rule.getPrefix().length() > best.getPrefix().length())) {
+                best = rule;
+            }
+        }
+        return best != null ? best.getPolicy() : defaultPolicy;
+    }
+}
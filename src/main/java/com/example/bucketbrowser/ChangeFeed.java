@@ -0,0 +1,373 @@
+package com.example.bucketbrowser;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+// Pushes created, updated and deleted keys to connected browsers as server-sent
+// events, so they can patch their listing instead of fetching it again. Fed by the
+// key index, so it sees the app's own writes as they happen and writes made outside
+// the app once a reconcile notices them.
+//
+// Changes are numbered and the most recent ones are kept in a ring. A client that
+// reconnects with Last-Event-ID gets what it missed from the ring; one that fell
+// further behind, or whose ID is from before a restart, is told to reload instead.
+// One dispatcher thread gathers changes for a short window first, so a burst of
+// writes goes out as one event per client. The sends themselves run on a pool, at
+// most one per client at a time: a client still busy with its last event catches
+// up from the ring afterwards, and one stuck for longer than send-timeout-ms is
+// dropped, so a slow reader never holds up the others.
+@Component
+public class ChangeFeed implements KeyIndex.Listener, MeterBinder {
+    private static final Logger logger = LoggerFactory.getLogger(ChangeFeed.class);
+
+    public static final String CREATED = "created";
+    public static final String UPDATED = "updated";
+    public static final String DELETED = "deleted";
+
+    // One change as sent to clients; size, lastModified and eTag are null for deletes
+    public record Change(@JsonIgnore long seq, String type, String key, Long size, Long lastModified, String eTag) {
+    }
+
+    private static final class Client {
+        final SseEmitter emitter;
+        final AtomicBoolean needsReset;
+        // Set while a send is in flight; the sender owns sentSeq until it clears it
+        final AtomicBoolean sending = new AtomicBoolean(true);
+        volatile long sendStarted = System.currentTimeMillis();
+        long sentSeq;
+
+        Client(SseEmitter emitter, long sentSeq, boolean needsReset) {
+            this.emitter = emitter;
+            this.sentSeq = sentSeq;
+            this.needsReset = new AtomicBoolean(needsReset);
+        }
+    }
+
+    @Value("${bucket.changes.enabled:true}")
+    private boolean enabled;
+
+    @Value("${bucket.changes.buffer:1024}")
+    private int bufferSize;
+
+    @Value("${bucket.changes.batch-ms:250}")
+    private long batchMs;
+
+    // Keeps idle connections from being cut by proxies, and finds clients that went away
+    @Value("${bucket.changes.heartbeat-ms:30000}")
+    private long heartbeatMs;
+
+    // Connections are closed after this and the browser reconnects with Last-Event-ID
+    @Value("${bucket.changes.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    @Value("${bucket.changes.max-clients:256}")
+    private int maxClients;
+
+    // A client whose send has not returned after this is dropped; the browser reconnects
+    @Value("${bucket.changes.send-timeout-ms:10000}")
+    private long sendTimeoutMs;
+
+    private final KeyIndex keyIndex;
+    private final ThumbnailService thumbnails;
+
+    // Event IDs carry this so IDs handed out before a restart are recognised
+    private final String runId = UUID.randomUUID().toString().substring(0, 8);
+
+    private final ArrayDeque<Change> recent = new ArrayDeque<>();
+    private long lastSeq = 0;
+    private boolean signalled = false;
+    private boolean resetPending = false;
+    private final List<Client> clients = new CopyOnWriteArrayList<>();
+
+    private volatile boolean running = false;
+    private Thread dispatcher;
+    // Unbounded, but each client has at most one send in flight, so never more than max-clients threads
+    private ExecutorService sender;
+
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong resets = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    @Autowired
+    public ChangeFeed(KeyIndex keyIndex, ThumbnailService thumbnails) {
+        this.keyIndex = keyIndex;
+        this.thumbnails = thumbnails;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!isEnabled()) {
+            logger.info("Change feed disabled{}", enabled ? " (needs the key index)" : "");
+            return;
+        }
+        keyIndex.addListener(this);
+        running = true;
+        AtomicInteger counter = new AtomicInteger();
+        sender = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "change-feed-send-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        dispatcher = new Thread(this::dispatch, "change-feed");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+        logger.info("Change feed: {} changes buffered, {} ms batches, up to {} clients",
+                bufferSize, batchMs, maxClients);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (dispatcher == null) {
+            return;
+        }
+        running = false;
+        dispatcher.interrupt();
+        sender.shutdownNow();
+        for (Client client : clients) {
+            client.emitter.complete();
+        }
+        clients.clear();
+    }
+
+    // Without the key index there is nothing to feed from
+    public boolean isEnabled() {
+        return enabled && keyIndex.isEnabled();
+    }
+
+    // Opens a stream for one client. lastEventId is what the browser sends when it
+    // reconnects. Throws RejectedExecutionException when max-clients are connected.
+    public SseEmitter subscribe(String lastEventId) throws IOException {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Client client;
+        synchronized (this) {
+            // Counted and added in one step, so concurrent subscribes cannot overshoot
+            if (clients.size() >= maxClients) {
+                throw new RejectedExecutionException("Change feed has " + clients.size() + " clients");
+            }
+            long resumeFrom = resumePoint(lastEventId);
+            long oldest = recent.isEmpty() ? lastSeq + 1 : recent.peekFirst().seq();
+            if (resumeFrom < 0 || resumeFrom > lastSeq) {
+                client = new Client(emitter, lastSeq, resumeFrom != -1);
+            } else {
+                // Replayable only if nothing between the client's last change and the ring was dropped
+                client = new Client(emitter, resumeFrom, resumeFrom + 1 < oldest);
+            }
+            clients.add(client);
+        }
+        emitter.onCompletion(() -> clients.remove(client));
+        emitter.onTimeout(() -> clients.remove(client));
+        emitter.onError(e -> clients.remove(client));
+        // The client starts out marked as sending, so the dispatcher leaves it alone until this is out
+        try {
+            emitter.send(SseEmitter.event().reconnectTime(1000).comment("connected"));
+        } catch (IOException | RuntimeException e) {
+            clients.remove(client);
+            throw e;
+        }
+        client.sending.set(false);
+        // Catches the client up on anything recorded since its starting point was taken
+        synchronized (this) {
+            signalled = true;
+            notifyAll();
+        }
+        return emitter;
+    }
+
+    // The sequence number in a Last-Event-ID of this run, -1 for none, -2 for a stale one
+    private long resumePoint(String lastEventId) {
+        if (lastEventId == null || lastEventId.isEmpty()) {
+            return -1;
+        }
+        int colon = lastEventId.indexOf(':');
+        if (colon < 0 || !lastEventId.substring(0, colon).equals(runId)) {
+            return -2;
+        }
+        try {
+            return Long.parseLong(lastEventId.substring(colon + 1));
+        } catch (NumberFormatException e) {
+            return -2;
+        }
+    }
+
+    @Override
+    public void keyChanged(String key, ObjectSummary previous, ObjectSummary current) {
+        if (thumbnails.isEnabled() && thumbnails.isRendition(key)) {
+            return;
+        }
+        synchronized (this) {
+            // The first reconcile reports every key as new; clients listed the backend
+            // directly meanwhile, so they just reload once it is done
+            if (!keyIndex.isReady()) {
+                if (!resetPending) {
+                    // Wakes the dispatcher to watch for the end of the warm-up
+                    resetPending = true;
+                    notifyAll();
+                }
+                return;
+            }
+            Change change = current == null
+                    ? new Change(++lastSeq, DELETED, key, null, null, null)
+                    : new Change(++lastSeq, previous == null ? CREATED : UPDATED, key, current.size(),
+                            current.lastModified() == null ? null : current.lastModified().toEpochMilli(),
+                            current.eTag());
+            recent.addLast(change);
+            if (recent.size() > bufferSize) {
+                recent.removeFirst();
+            }
+            signalled = true;
+            notifyAll();
+        }
+        published.incrementAndGet();
+    }
+
+    private void dispatch() {
+        long lastHeartbeat = System.currentTimeMillis();
+        while (running) {
+            List<Change> changes;
+            long newest;
+            boolean resetAll;
+            try {
+                synchronized (this) {
+                    long waitMs = heartbeatMs - (System.currentTimeMillis() - lastHeartbeat);
+                    if (!signalled && !resetPending && waitMs > 0) {
+                        wait(waitMs);
+                    }
+                }
+                // Let a burst of changes gather into one event
+                Thread.sleep(batchMs);
+            } catch (InterruptedException e) {
+                return;
+            }
+            synchronized (this) {
+                signalled = false;
+                changes = new ArrayList<>(recent);
+                newest = lastSeq;
+                resetAll = resetPending && keyIndex.isReady();
+                if (resetAll) {
+                    resetPending = false;
+                }
+            }
+
+            long now = System.currentTimeMillis();
+            boolean heartbeat = now - lastHeartbeat >= heartbeatMs;
+            if (heartbeat) {
+                lastHeartbeat = now;
+            }
+            for (Client client : clients) {
+                if (resetAll) {
+                    client.needsReset.set(true);
+                }
+                if (!client.sending.compareAndSet(false, true)) {
+                    // Still busy with an earlier event: it catches up next time, unless it is stuck
+                    if (now - client.sendStarted > sendTimeoutMs) {
+                        drop(client);
+                    }
+                    continue;
+                }
+                client.sendStarted = now;
+                try {
+                    sender.execute(() -> deliver(client, changes, newest, heartbeat));
+                } catch (RejectedExecutionException e) {
+                    // Shutting down
+                    return;
+                }
+            }
+        }
+    }
+
+    private void drop(Client client) {
+        if (clients.remove(client)) {
+            logger.debug("Dropping change feed client stuck in a send for over {} ms", sendTimeoutMs);
+            dropped.incrementAndGet();
+            client.emitter.complete();
+        }
+    }
+
+    private void deliver(Client client, List<Change> changes, long newest, boolean heartbeat) {
+        try {
+            long oldest = changes.isEmpty() ? newest + 1 : changes.get(0).seq();
+            if (client.needsReset.getAndSet(false) || (client.sentSeq < newest && client.sentSeq + 1 < oldest)) {
+                client.emitter.send(SseEmitter.event().name("reset").id(eventId(newest)).data("{}"));
+                client.sentSeq = newest;
+                resets.incrementAndGet();
+                return;
+            }
+            if (client.sentSeq < newest) {
+                List<Change> pending = changes.subList((int) (client.sentSeq + 1 - oldest), changes.size());
+                client.emitter.send(SseEmitter.event().name("changes").id(eventId(newest)).data(pending));
+                client.sentSeq = newest;
+            } else if (heartbeat) {
+                client.emitter.send(SseEmitter.event().comment("keep-alive"));
+            }
+        } catch (IOException | IllegalStateException e) {
+            // Gone away; the servlet container completes the emitter
+            logger.debug("Dropping change feed client: {}", e.getMessage());
+            clients.remove(client);
+        } finally {
+            client.sending.set(false);
+        }
+        // Changes that came in while this was being sent skipped the client; fetch them now
+        synchronized (this) {
+            if (client.sentSeq < lastSeq || client.needsReset.get()) {
+                signalled = true;
+                notifyAll();
+            }
+        }
+    }
+
+    private String eventId(long seq) {
+        return runId + ":" + seq;
+    }
+
+    public synchronized Map<String, Object> stats() {
+        return Map.of(
+                "clients", clients.size(),
+                "lastChange", lastSeq,
+                "buffered", recent.size(),
+                "resets", resets.get(),
+                "dropped", dropped.get());
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (!isEnabled()) {
+            return;
+        }
+        FunctionCounter.builder("bucket.changes.published", published, AtomicLong::get)
+                .register(registry);
+        FunctionCounter.builder("bucket.changes.resets", resets, AtomicLong::get)
+                .register(registry);
+        FunctionCounter.builder("bucket.changes.dropped", dropped, AtomicLong::get)
+                .register(registry);
+        Gauge.builder("bucket.changes.clients", clients, List::size)
+                .register(registry);
+    }
+}
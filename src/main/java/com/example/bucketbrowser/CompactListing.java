@@ -0,0 +1,71 @@
+package com.example.bucketbrowser;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Columnar encoding of a run of sorted listing entries, for listings too large to
+// send as one JSON object per key. Keys are front-coded: each one is sent as the
+// number of leading characters it shares with the previous key, plus the rest.
+// Under deep folders that removes most of the key bytes. The other attributes are
+// parallel arrays, and storage classes are indexes into a table of the distinct
+// values. Every block starts the front coding afresh, so it decodes on its own.
+// Unknown values are sent as 0 (lastModified), null (eTags) and -1 (storageClass).
+public record CompactListing(int[] shared, String[] suffixes, long[] sizes, long[] lastModified,
+                             String[] eTags, String[] storageClasses, int[] storageClass) {
+
+    // A page of a paged listing, with the objects in compact form
+    public record Page(CompactListing objects, List<String> prefixes, String nextCursor) {
+
+        public static Page of(ListingPage page) {
+            return new Page(CompactListing.of(page.objects()), page.prefixes(), page.nextCursor());
+        }
+    }
+
+    public static CompactListing of(List<ObjectSummary> objects) {
+        int count = objects.size();
+        int[] shared = new int[count];
+        String[] suffixes = new String[count];
+        long[] sizes = new long[count];
+        long[] lastModified = new long[count];
+        String[] eTags = new String[count];
+        int[] storageClass = new int[count];
+        List<String> storageClasses = new ArrayList<>(2);
+        Map<String, Integer> storageClassIndex = new HashMap<>(4);
+
+        String previous = "";
+        for (int i = 0; i < count; i++) {
+            ObjectSummary object = objects.get(i);
+            String key = object.key();
+            int common = commonPrefixLength(previous, key);
+            shared[i] = common;
+            suffixes[i] = key.substring(common);
+            sizes[i] = object.size();
+            lastModified[i] = object.lastModified() == null ? 0 : object.lastModified().toEpochMilli();
+            eTags[i] = object.eTag();
+            storageClass[i] = object.storageClass() == null ? -1 : storageClassIndex.computeIfAbsent(
+                    object.storageClass(), value -> {
+                        storageClasses.add(value);
+                        return storageClasses.size() - 1;
+                    });
+            previous = key;
+        }
+        return new CompactListing(shared, suffixes, sizes, lastModified, eTags,
+                storageClasses.toArray(String[]::new), storageClass);
+    }
+
+    // Counted in UTF-16 units like JavaScript string indexes, but never splitting a
+    // surrogate pair, which could not be written out as JSON on its own
+    private static int commonPrefixLength(String a, String b) {
+        int max = Math.min(a.length(), b.length());
+        int length = 0;
+        while (length < max && a.charAt(length) == b.charAt(length)) {
+            length++;
+        }
+        if (length > 0 && Character.isHighSurrogate(b.charAt(length - 1))) {
+            length--;
+        }
+        return length;
+    }
+}
@@ -0,0 +1,181 @@
+package com.example.bucketbrowser;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import jakarta.annotation.PostConstruct;
+
+// Compressed copies of small, frequently downloaded text objects, so each is
+// compressed once rather than on every request. Entries are keyed by object key
+// and coding and carry the ETag of the body they were made from: a variant is
+// only served for that exact version, so a stale one can never go out, and the
+// key index listener merely frees the space early. Variants also carry the content
+// type, so a hit can be answered from the key index without opening the object.
+// Weighed by compressed size and evicted least recently used first.
+@Component
+public class CompressedVariantCache implements KeyIndex.Listener, MeterBinder {
+    private static final Logger logger = LoggerFactory.getLogger(CompressedVariantCache.class);
+
+    // Rough per-entry overhead on top of the body: key, ETag, map node
+    private static final int ENTRY_OVERHEAD = 256;
+
+    private record VariantKey(String key, String coding) {
+    }
+
+    public record Variant(String eTag, String contentType, byte[] data) {
+    }
+
+    @Value("${bucket.compression.cache-size:16777216}")
+    private long capacity;
+
+    @Value("${bucket.compression.cache-max-object-size:1048576}")
+    private long maxObjectSize;
+
+    // Spent once per variant, so it can afford more than the streaming level
+    @Value("${bucket.compression.cache-level:6}")
+    private int level;
+
+    private final KeyIndex keyIndex;
+    private final ResponseCompressor responseCompressor;
+
+    private final LinkedHashMap<VariantKey, Variant> variants = new LinkedHashMap<>(64, 0.75f, true);
+    private long bytes = 0;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    @Autowired
+    public CompressedVariantCache(KeyIndex keyIndex, ResponseCompressor responseCompressor) {
+        this.keyIndex = keyIndex;
+        this.responseCompressor = responseCompressor;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (capacity <= 0) {
+            logger.info("Compressed variant cache disabled");
+            return;
+        }
+        keyIndex.addListener(this);
+        logger.info("Compressed variant cache: {} bytes, objects up to {} bytes, level {}",
+                capacity, maxObjectSize, level);
+    }
+
+    public boolean isEnabled() {
+        return capacity > 0;
+    }
+
+    public boolean isCacheable(long size, String eTag) {
+        return isEnabled() && eTag != null && size >= 0 && size <= maxObjectSize;
+    }
+
+    // Whether any variant of the key is held, current or not; cheap enough to ask
+    // before spending a HEAD on the ETag
+    public synchronized boolean contains(String key, String coding) {
+        return variants.containsKey(new VariantKey(key, coding));
+    }
+
+    // The variant made from exactly this version of the object, or null
+    public synchronized Variant get(String key, String eTag, String coding) {
+        Variant variant = variants.get(new VariantKey(key, coding));
+        if (variant == null || eTag == null || !variant.eTag().equals(eTag)) {
+            return null;
+        }
+        hits.incrementAndGet();
+        return variant;
+    }
+
+    // Compresses the body and keeps the result; counted as a miss. Runs outside the
+    // lock, so two requests missing on the same key at once both compress; the
+    // second put wins.
+    public byte[] compress(String key, String eTag, String contentType, String coding, byte[] body)
+            throws IOException {
+        misses.incrementAndGet();
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(64, body.length / 4));
+        try (OutputStream out = responseCompressor.wrap(compressed, coding, level)) {
+            out.write(body);
+        }
+        byte[] data = compressed.toByteArray();
+        put(key, coding, new Variant(eTag, contentType, data));
+        return data;
+    }
+
+    private synchronized void put(String key, String coding, Variant variant) {
+        VariantKey variantKey = new VariantKey(key, coding);
+        Variant previous = variants.put(variantKey, variant);
+        if (previous != null) {
+            bytes -= weight(variantKey, previous);
+        }
+        bytes += weight(variantKey, variants.get(variantKey));
+
+        Iterator<Map.Entry<VariantKey, Variant>> eldest = variants.entrySet().iterator();
+        while (bytes > capacity && eldest.hasNext()) {
+            Map.Entry<VariantKey, Variant> evicted = eldest.next();
+            eldest.remove();
+            bytes -= weight(evicted.getKey(), evicted.getValue());
+        }
+    }
+
+    public synchronized void invalidate(String key) {
+        for (String coding : new String[] {ResponseCompressor.GZIP, ResponseCompressor.DEFLATE}) {
+            VariantKey variantKey = new VariantKey(key, coding);
+            Variant removed = variants.remove(variantKey);
+            if (removed != null) {
+                bytes -= weight(variantKey, removed);
+            }
+        }
+    }
+
+    @Override
+    public void keyChanged(String key, ObjectSummary previous, ObjectSummary current) {
+        invalidate(key);
+    }
+
+    public synchronized Map<String, Object> stats() {
+        return Map.of(
+                "entries", variants.size(),
+                "bytes", bytes,
+                "hits", hits.get(),
+                "misses", misses.get());
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (!isEnabled()) {
+            return;
+        }
+        FunctionCounter.builder("bucket.compression.cache.requests", hits, AtomicLong::get)
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("bucket.compression.cache.requests", misses, AtomicLong::get)
+                .tag("result", "miss")
+                .register(registry);
+        Gauge.builder("bucket.compression.cache.size", this, CompressedVariantCache::currentBytes)
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    private synchronized long currentBytes() {
+        return bytes;
+    }
+
+    private static long weight(VariantKey key, Variant variant) {
+        return variant.data().length + key.key().length() * 2L + ENTRY_OVERHEAD;
+    }
+}
@@ -22,6 +22,15 @@ public class ConfigController {
     @Autowired
     private BucketController bucketController;
 
+    @Autowired
+    private StorageBackend storage;
+
+    @Autowired
+    private ThumbnailService thumbnails;
+
+    @Autowired
+    private ChangeFeed changeFeed;
+
     @GetMapping("/api/config")
     public Map<String, Object> getConfig() {
         boolean demoMode = bucketController.isDemoMode();
@@ -29,10 +38,19 @@ public class ConfigController {
         Map<String, Object> config = new HashMap<>();
         config.put("readOnlyMode", readOnlyMode);
         config.put("demoMode", demoMode);
+        config.put("backend", storage.name());
+        config.put("changeFeed", changeFeed.isEnabled());
+        if (thumbnails.isEnabled()) {
+            config.put("thumbnailSizes", thumbnails.sizes());
+            config.put("thumbnailPrefix", thumbnails.prefix());
+        }
 
         if (demoMode) {
             config.put("bucketHost", "demo-host.example.com");
             config.put("bucketName", "demo-bucket");
+        } else if (storage instanceof FileSystemBackend filesystem) {
+            config.put("bucketHost", "localhost");
+            config.put("bucketName", filesystem.getRoot().toString());
         } else {
             config.put("bucketHost", bucketHost);
             config.put("bucketName", bucketName);
@@ -1,24 +1,44 @@
 package com.example.bucketbrowser;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
-import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.function.Consumer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpRange;
 import org.springframework.stereotype.Service;
 
+// The bucket stand-in for demo mode, seeded with sample files. Requests reach it
+// concurrently; the store underneath needs no locking.
 @Service
-public class DemoService {
+public class DemoService implements StorageBackend {
     private static final Logger logger = LoggerFactory.getLogger(DemoService.class);
 
-    private final Map<String, byte[]> files = new LinkedHashMap<>();
+    private static final long DEFAULT_MAX_BYTES = 268435456;
+    private static final long DEFAULT_MAX_OBJECT_SIZE = 67108864;
 
-    public DemoService() {
+    private final InMemoryObjectStore store;
+    private final KeyIndex keyIndex;
+
+    @Autowired
+    public DemoService(KeyIndex keyIndex,
+                       @Value("${bucket.demo.max-bytes:" + DEFAULT_MAX_BYTES + "}") long maxBytes,
+                       @Value("${bucket.demo.max-object-size:" + DEFAULT_MAX_OBJECT_SIZE + "}") long maxObjectSize,
+                       @Value("${bucket.demo.off-heap:false}") boolean offHeap) {
+        this.keyIndex = keyIndex;
+        this.store = new InMemoryObjectStore(maxBytes, maxObjectSize, offHeap);
         initSampleFiles();
-        logger.info("DemoService initialized with {} sample files", files.size());
+        logger.info("DemoService initialized with {} sample files (limit {} bytes{})", store.size(),
+                maxBytes, offHeap ? ", off-heap" : "");
+    }
+
+    public DemoService(KeyIndex keyIndex) {
+        this(keyIndex, DEFAULT_MAX_BYTES, DEFAULT_MAX_OBJECT_SIZE, false);
     }
 
     private void initSampleFiles() {
@@ -175,31 +195,97 @@ public class DemoService {
     }
 
     private void put(String key, String content) {
-        files.put(key, content.getBytes(StandardCharsets.UTF_8));
+        store.put(key, content.getBytes(StandardCharsets.UTF_8), BucketController.determineContentType(key));
+    }
+
+    public InMemoryObjectStore getStore() {
+        return store;
+    }
+
+    @Override
+    public String name() {
+        return "memory";
+    }
+
+    @Override
+    public void checkHealth() {
+    }
+
+    @Override
+    public void listBucketPages(String prefix, Consumer<List<String>> pageConsumer) {
+        store.listKeyPages(prefix, ListingPage.MAX_PAGE_SIZE, pageConsumer);
+    }
+
+    public void listObjectSummaries(Consumer<List<ObjectSummary>> pageConsumer) {
+        listObjectSummaries(null, pageConsumer);
+    }
+
+    @Override
+    public void listObjectSummaries(String prefix, Consumer<List<ObjectSummary>> pageConsumer) {
+        store.listSummaryPages(prefix, ListingPage.MAX_PAGE_SIZE, pageConsumer);
     }
 
     public List<String> listFiles() {
-        return new ArrayList<>(files.keySet());
+        return store.keys(null);
     }
 
-    public byte[] downloadFile(String key) throws Exception {
-        byte[] data = files.get(key);
-        if (data == null) {
-            throw new Exception("File not found: " + key);
-        }
-        return data;
+    @Override
+    public ListingPage listPage(String prefix, String delimiter, String cursor, int pageSize) {
+        return store.listPage(prefix, delimiter, cursor, pageSize);
     }
 
+    @Override
+    public ObjectMetadata headObject(String key) throws Exception {
+        return store.head(key);
+    }
+
+    @Override
+    public ObjectContent downloadFile(String key) throws Exception {
+        return downloadFile(key, null);
+    }
+
+    @Override
+    public ObjectContent downloadFile(String key, HttpRange range) throws Exception {
+        return store.get(key, range);
+    }
+
+    @Override
+    public void uploadFile(String key, InputStream in, long size, String contentType) throws IOException {
+        uploaded(store.put(key, in, size, contentType));
+    }
+
+    @Override
     public void uploadFile(String key, byte[] content, String contentType) {
-        files.put(key, content);
-        logger.info("Demo: uploaded file '{}' ({} bytes)", key, content.length);
+        uploaded(store.put(key, content, contentType));
     }
 
+    private void uploaded(ObjectSummary summary) {
+        keyIndex.put(summary);
+        logger.info("Demo: uploaded file '{}' ({} bytes)", summary.key(), summary.size());
+    }
+
+    @Override
     public void deleteFile(String key) {
-        if (files.remove(key) != null) {
+        if (store.remove(key) != null) {
+            keyIndex.remove(key);
             logger.info("Demo: deleted file '{}'", key);
         } else {
             logger.warn("Demo: file not found for deletion: '{}'", key);
         }
     }
+
+    @Override
+    public BatchDeleteReport deleteFiles(List<String> keys) {
+        BatchDeleteReport report = new BatchDeleteReport();
+        for (String key : keys) {
+            deleteFile(key);
+            report.deleted().add(key);
+        }
+        return report;
+    }
+
+    @Override
+    public BatchDeleteReport deleteByPrefix(String prefix) {
+        return deleteFiles(store.keys(prefix));
+    }
 }
@@ -0,0 +1,74 @@
+package com.example.bucketbrowser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+// Reads one region of an open file with positional channel reads. The controller
+// recognises it and, where the container supports it, hands the region to
+// sendfile instead of reading it at all.
+public class FileRegionInputStream extends InputStream {
+
+    private final Path file;
+    private final FileChannel channel;
+    private long position;
+    private final long end;
+
+    public FileRegionInputStream(Path file, FileChannel channel, long position, long length) {
+        this.file = file;
+        this.channel = channel;
+        this.position = position;
+        this.end = position + length;
+    }
+
+    public Path file() {
+        return file;
+    }
+
+    public long position() {
+        return position;
+    }
+
+    public long remaining() {
+        return end - position;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] one = new byte[1];
+        return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (position >= end) {
+            return -1;
+        }
+        int count = channel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, end - position)), position);
+        if (count < 0) {
+            // The file was truncated under us
+            throw new IOException(file + " ended " + (end - position) + " bytes early");
+        }
+        position += count;
+        return count;
+    }
+
+    @Override
+    public long skip(long n) {
+        long count = Math.min(Math.max(n, 0), end - position);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public int available() {
+        return (int) Math.min(Integer.MAX_VALUE, end - position);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,465 @@
+package com.example.bucketbrowser;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpRange;
+
+// Serves a local directory, or an NFS mount, as the bucket. Keys are paths under
+// the root with '/' separators. Downloads read the file with positional channel
+// reads, or go out through sendfile when the container supports it (see
+// BucketController). Uploads are written through a channel into a staging file
+// and renamed into place, so readers never see a partial object. Directories
+// only exist as long as they hold something, like prefixes in S3.
+public class FileSystemBackend implements StorageBackend {
+    private static final Logger logger = LoggerFactory.getLogger(FileSystemBackend.class);
+
+    // Uploads in progress live here, on the same filesystem so the final rename is
+    // atomic. It is hidden from listings and cannot be addressed as a key.
+    static final String STAGING_DIR = ".bucket-browser-staging";
+
+    private final Path root;
+    // Where root really is once symlinks are followed; every key must end up under it
+    private final Path realRoot;
+    private final Path staging;
+    private final KeyIndex keyIndex;
+
+    public FileSystemBackend(Path root, KeyIndex keyIndex) throws IOException {
+        this.root = Files.createDirectories(root.toAbsolutePath().normalize());
+        this.realRoot = this.root.toRealPath();
+        this.staging = Files.createDirectories(this.root.resolve(STAGING_DIR));
+        this.keyIndex = keyIndex;
+        logger.info("Filesystem storage rooted at {}", this.root);
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    @Override
+    public String name() {
+        return "filesystem";
+    }
+
+    @Override
+    public void checkHealth() throws IOException {
+        if (!Files.isDirectory(root) || !Files.isReadable(root)) {
+            throw new IOException("Storage root " + root + " is not a readable directory");
+        }
+    }
+
+    // Maps a key to its file. Keys a filesystem cannot hold as S3 does (empty
+    // segments, '.' or '..', a trailing '/') or that would leave the root, also by way
+    // of a symlink, are refused.
+    Path resolve(String key) {
+        if (key == null || key.isEmpty() || key.indexOf('\0') >= 0) {
+            throw new IllegalArgumentException("Key cannot be stored on the filesystem: " + key);
+        }
+        for (String segment : key.split("/", -1)) {
+            if (segment.isEmpty() || segment.equals(".") || segment.equals("..")) {
+                throw new IllegalArgumentException("Key cannot be stored on the filesystem: " + key);
+            }
+        }
+        if (key.equals(STAGING_DIR) || key.startsWith(STAGING_DIR + "/")) {
+            throw new IllegalArgumentException("Key is reserved: " + key);
+        }
+        Path path = root.resolve(key).normalize();
+        if (!path.startsWith(root) || path.equals(root) || !insideRoot(path)) {
+            throw new IllegalArgumentException("Key cannot be stored on the filesystem: " + key);
+        }
+        return path;
+    }
+
+    // The lexical check cannot see symlinks: with root/x -> /etc, "x/passwd" passes it.
+    // Whatever part of the path already exists has to lead back under the real root.
+    // A dangling link counts as missing: reads through it fail and uploads replace it.
+    private boolean insideRoot(Path path) {
+        for (Path existing = path; existing != null; existing = existing.getParent()) {
+            try {
+                return existing.toRealPath().startsWith(realRoot);
+            } catch (NoSuchFileException e) {
+                // Not there (yet); its parent decides
+            } catch (IOException e) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    // The file's own size and modification time stand in for an ETag: any write
+    // through the app or from outside changes at least one of them
+    private static ObjectSummary summarize(String key, BasicFileAttributes attributes) {
+        String eTag = "\"" + Long.toHexString(attributes.lastModifiedTime().to(TimeUnit.MICROSECONDS))
+                + "-" + Long.toHexString(attributes.size()) + "\"";
+        return new ObjectSummary(key, attributes.size(), attributes.lastModifiedTime().toInstant(), eTag);
+    }
+
+    private BasicFileAttributes regularFile(String key, Path file) throws Exception {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            if (attributes.isRegularFile()) {
+                return attributes;
+            }
+        } catch (NoSuchFileException e) {
+            // Reported below, the same way as a directory in its place
+        }
+        throw new Exception("File not found: " + key);
+    }
+
+    @Override
+    public ObjectMetadata headObject(String key) throws Exception {
+        ObjectSummary summary = summarize(key, regularFile(key, resolve(key)));
+        return new ObjectMetadata(key, summary.size(), null, summary.eTag(), summary.lastModified());
+    }
+
+    @Override
+    public ObjectContent downloadFile(String key, HttpRange range) throws Exception {
+        Path file = resolve(key);
+        ObjectSummary summary = summarize(key, regularFile(key, file));
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            // Sized by the open file, so a replacement that lands meanwhile cannot cut the body short
+            long size = channel.size();
+            ObjectMetadata metadata = new ObjectMetadata(key, size, null, summary.eTag(), summary.lastModified());
+            if (range == null) {
+                return new ObjectContent(metadata, new FileRegionInputStream(file, channel, 0, size), size, null);
+            }
+
+            ByteRange served = ByteRange.resolve(range, size);
+            if (served == null) {
+                throw new RangeNotSatisfiableException(key, size);
+            }
+            return new ObjectContent(metadata, new FileRegionInputStream(file, channel, served.start(), served.length()),
+                    served.length(), served);
+        } catch (Exception e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public void uploadFile(String key, InputStream in, long size, String contentType) throws IOException {
+        Path target = resolve(key);
+        Path temp = Files.createTempFile(staging, "upload-", ".tmp");
+        try {
+            long written = 0;
+            byte[] buffer = TransferBuffers.acquire();
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                ByteBuffer chunk = ByteBuffer.wrap(buffer);
+                int length;
+                while ((length = in.read(buffer)) > -1) {
+                    chunk.clear().limit(length);
+                    while (chunk.hasRemaining()) {
+                        written += channel.write(chunk);
+                    }
+                }
+            } finally {
+                TransferBuffers.release(buffer);
+            }
+            if (size >= 0 && written != size) {
+                throw new IOException("Upload body ended after " + written + " of " + size + " bytes");
+            }
+            moveIntoPlace(temp, target);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+
+        keyIndex.put(summarize(key, Files.readAttributes(target, BasicFileAttributes.class)));
+        logger.debug("Stored {} at {}", key, target);
+    }
+
+    // A concurrent delete may remove the emptied parent directory between creating
+    // it and the rename, so that is retried once
+    private static void moveIntoPlace(Path temp, Path target) throws IOException {
+        for (int attempt = 0; ; attempt++) {
+            Files.createDirectories(target.getParent());
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                return;
+            } catch (NoSuchFileException e) {
+                if (attempt > 0) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void uploadFile(String key, byte[] content, String contentType) {
+        try {
+            uploadFile(key, new ByteArrayInputStream(content), content.length, contentType);
+        } catch (IOException e) {
+            logger.error("Failed to store file with key {}: {}", key, e.getMessage(), e);
+            throw new UncheckedIOException("Failed to store file", e);
+        }
+    }
+
+    @Override
+    public void deleteFile(String key) {
+        Path file = resolve(key);
+        try {
+            if (!Files.isDirectory(file, LinkOption.NOFOLLOW_LINKS) && Files.deleteIfExists(file)) {
+                removeEmptyParents(file.getParent());
+            }
+        } catch (IOException e) {
+            logger.error("Failed to delete file with key {}: {}", key, e.getMessage(), e);
+            throw new UncheckedIOException("Failed to delete file", e);
+        }
+        keyIndex.remove(key);
+    }
+
+    private void removeEmptyParents(Path dir) {
+        while (dir != null && dir.startsWith(root) && !dir.equals(root)) {
+            try {
+                Files.delete(dir);
+            } catch (IOException e) {
+                // Not empty (or already gone): everything above it stays too
+                return;
+            }
+            dir = dir.getParent();
+        }
+    }
+
+    @Override
+    public BatchDeleteReport deleteFiles(List<String> keys) {
+        BatchDeleteReport report = new BatchDeleteReport();
+        for (String key : keys) {
+            try {
+                deleteFile(key);
+                report.deleted().add(key);
+            } catch (RuntimeException e) {
+                report.failed().add(new BatchDeleteReport.Failure(key, "RequestFailed", e.getMessage()));
+            }
+        }
+        return report;
+    }
+
+    // Collected before deleting, since removing files while walking would also
+    // remove the directories being walked
+    @Override
+    public BatchDeleteReport deleteByPrefix(String prefix) {
+        List<String> keys = new ArrayList<>();
+        listBucketPages(prefix, keys::addAll);
+        return deleteFiles(keys);
+    }
+
+    @Override
+    public void listBucketPages(String prefix, Consumer<List<String>> pageConsumer) {
+        listObjectSummaries(prefix, page -> pageConsumer.accept(page.stream().map(ObjectSummary::key).toList()));
+    }
+
+    @Override
+    public void listObjectSummaries(String prefix, Consumer<List<ObjectSummary>> pageConsumer) {
+        List<ObjectSummary> page = new ArrayList<>(ListingPage.MAX_PAGE_SIZE);
+        scan(prefix, null, null, new Visitor() {
+            @Override
+            public boolean object(ObjectSummary summary) {
+                page.add(summary);
+                if (page.size() == ListingPage.MAX_PAGE_SIZE) {
+                    pageConsumer.accept(List.copyOf(page));
+                    page.clear();
+                }
+                return true;
+            }
+
+            @Override
+            public boolean prefix(String commonPrefix) {
+                return true;
+            }
+        });
+        if (!page.isEmpty()) {
+            pageConsumer.accept(List.copyOf(page));
+        }
+    }
+
+    // Same semantics as ListingPage.fromSorted, read from the directory tree
+    @Override
+    public ListingPage listPage(String prefix, String delimiter, String cursor, int pageSize) {
+        List<ObjectSummary> objects = new ArrayList<>();
+        List<String> prefixes = new ArrayList<>();
+        String[] last = {null};
+        boolean[] more = {false};
+        scan(prefix, ListingPage.resumeFrom(cursor, prefix, delimiter), delimiter, new Visitor() {
+            @Override
+            public boolean object(ObjectSummary summary) {
+                if (full()) {
+                    return false;
+                }
+                objects.add(summary);
+                last[0] = summary.key();
+                return true;
+            }
+
+            @Override
+            public boolean prefix(String commonPrefix) {
+                if (full()) {
+                    return false;
+                }
+                prefixes.add(commonPrefix);
+                last[0] = commonPrefix;
+                return true;
+            }
+
+            private boolean full() {
+                more[0] = objects.size() + prefixes.size() == pageSize;
+                return more[0];
+            }
+        });
+        return new ListingPage(objects, prefixes, more[0] ? ListingPage.encodeCursor(last[0]) : null);
+    }
+
+    private interface Visitor {
+        // Both return false to end the scan
+        boolean object(ObjectSummary summary);
+
+        boolean prefix(String commonPrefix);
+    }
+
+    // A directory entry under its key. Directories carry a trailing '/', which is
+    // what makes siblings sorted by key come out in the order of the full keys
+    // beneath them: a depth-first walk then visits every key in S3 listing order.
+    private record Entry(String key, Path path, BasicFileAttributes attributes) {
+    }
+
+    // from is the first key (inclusive) to report, as ListingPage.resumeFrom gives it
+    private void scan(String prefix, String from, String delimiter, Visitor visitor) {
+        String normalizedPrefix = ListingPage.normalizePrefix(prefix);
+        // Only the deepest directory the prefix names needs to be read
+        String dirKey = normalizedPrefix.substring(0, normalizedPrefix.lastIndexOf('/') + 1);
+        Path dir;
+        try {
+            dir = dirKey.isEmpty() ? root : resolve(dirKey.substring(0, dirKey.length() - 1));
+        } catch (IllegalArgumentException e) {
+            // No file can live under a prefix no key can have
+            return;
+        }
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        try {
+            new Scan(normalizedPrefix, from, delimiter, visitor).walk(dir, dirKey);
+        } catch (IOException e) {
+            logger.error("Failed to list {}: {}", dir, e.getMessage(), e);
+            throw new UncheckedIOException("Failed to list objects", e);
+        }
+    }
+
+    private class Scan {
+        private final String prefix;
+        private final String from;
+        private final String delimiter;
+        private final boolean delimited;
+        private final Visitor visitor;
+        private String lastPrefix;
+
+        Scan(String prefix, String from, String delimiter, Visitor visitor) {
+            this.prefix = prefix;
+            this.from = from;
+            this.delimiter = delimiter;
+            this.delimited = ListingPage.isDelimited(delimiter);
+            this.visitor = visitor;
+        }
+
+        boolean walk(Path dir, String dirKey) throws IOException {
+            for (Entry entry : children(dir, dirKey)) {
+                boolean keep = entry.attributes().isDirectory() ? directory(entry) : file(entry);
+                if (!keep) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean directory(Entry entry) throws IOException {
+            String key = entry.key();
+            if (!key.startsWith(prefix) && !prefix.startsWith(key)) {
+                return true;
+            }
+            // Every key beneath sorts before the cursor
+            if (from != null && key.compareTo(from) < 0 && !from.startsWith(key)) {
+                return true;
+            }
+            // With '/' as the delimiter a folder right below the prefix is one common
+            // prefix, reported without reading what is inside
+            if ("/".equals(delimiter) && key.startsWith(prefix) && key.indexOf('/', prefix.length()) == key.length() - 1) {
+                if (from != null && key.compareTo(from) < 0) {
+                    return true;
+                }
+                return visitor.prefix(key);
+            }
+            return walk(entry.path(), key);
+        }
+
+        private boolean file(Entry entry) {
+            String key = entry.key();
+            if (!key.startsWith(prefix) || (from != null && key.compareTo(from) < 0)) {
+                return true;
+            }
+            int split = delimited ? key.indexOf(delimiter, prefix.length()) : -1;
+            if (split >= 0) {
+                // Keys sharing a common prefix are adjacent in key order
+                String commonPrefix = key.substring(0, split + delimiter.length());
+                if (commonPrefix.equals(lastPrefix)) {
+                    return true;
+                }
+                lastPrefix = commonPrefix;
+                return visitor.prefix(commonPrefix);
+            }
+            return visitor.object(summarize(key, entry.attributes()));
+        }
+    }
+
+    // Symlinked files are followed as long as they stay under the root; symlinked
+    // directories are skipped, so a link loop cannot make a walk endless
+    private List<Entry> children(Path dir, String dirKey) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                if (dirKey.isEmpty() && name.equals(STAGING_DIR)) {
+                    continue;
+                }
+                BasicFileAttributes attributes;
+                try {
+                    attributes = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                    if (attributes.isSymbolicLink()) {
+                        attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                        if (!attributes.isRegularFile() || !insideRoot(path)) {
+                            continue;
+                        }
+                    }
+                } catch (NoSuchFileException e) {
+                    // Deleted since the directory was read
+                    continue;
+                }
+                if (attributes.isDirectory()) {
+                    entries.add(new Entry(dirKey + name + "/", path, attributes));
+                } else if (attributes.isRegularFile()) {
+                    entries.add(new Entry(dirKey + name, path, attributes));
+                }
+            }
+        }
+        entries.sort(Comparator.comparing(Entry::key));
+        return entries;
+    }
+}
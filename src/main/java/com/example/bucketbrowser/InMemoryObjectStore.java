@@ -0,0 +1,209 @@
+package com.example.bucketbrowser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.springframework.http.HttpRange;
+
+// Object store held in memory, safe for any number of concurrent requests. Keys
+// live in a concurrent sorted map, so prefix and folder listings walk it in order
+// without locking or copying, and readers never block writers. Bodies are
+// immutable once stored, either on the heap or in direct buffers outside it.
+// Total and per-object sizes are capped.
+public class InMemoryObjectStore {
+
+    private record StoredObject(ObjectSummary summary, String contentType, ByteBuffer body) {
+
+        ObjectMetadata metadata() {
+            return new ObjectMetadata(summary.key(), summary.size(), contentType, summary.eTag(), summary.lastModified());
+        }
+    }
+
+    private final ConcurrentSkipListMap<String, StoredObject> objects = new ConcurrentSkipListMap<>();
+    private final AtomicLong usedBytes = new AtomicLong();
+    private final long maxBytes;
+    private final long maxObjectSize;
+    private final boolean offHeap;
+
+    public InMemoryObjectStore(long maxBytes, long maxObjectSize, boolean offHeap) {
+        this.maxBytes = maxBytes;
+        // A body is one buffer, so it cannot exceed what a buffer can index
+        this.maxObjectSize = Math.min(maxObjectSize, Integer.MAX_VALUE - 8);
+        this.offHeap = offHeap;
+    }
+
+    public int size() {
+        return objects.size();
+    }
+
+    public long usedBytes() {
+        return usedBytes.get();
+    }
+
+    public long maxBytes() {
+        return maxBytes;
+    }
+
+    public boolean isOffHeap() {
+        return offHeap;
+    }
+
+    public boolean contains(String key) {
+        return objects.containsKey(key);
+    }
+
+    // Reads the body up front: an object only becomes visible once it is complete
+    public ObjectSummary put(String key, InputStream in, long size, String contentType) throws IOException {
+        if (size > maxObjectSize) {
+            throw new StorageLimitExceededException(key, size, "the " + maxObjectSize + " byte object size limit");
+        }
+        byte[] content = in.readNBytes((int) (size >= 0 ? size : maxObjectSize + 1));
+        if (size < 0 && content.length > maxObjectSize) {
+            throw new StorageLimitExceededException(key, content.length, "the " + maxObjectSize + " byte object size limit");
+        }
+        if (size >= 0 && content.length < size) {
+            throw new IOException("Upload body ended after " + content.length + " of " + size + " bytes");
+        }
+        return put(key, content, contentType);
+    }
+
+    public ObjectSummary put(String key, byte[] content, String contentType) {
+        if (content.length > maxObjectSize) {
+            throw new StorageLimitExceededException(key, content.length, "the " + maxObjectSize + " byte object size limit");
+        }
+        // Reserved before the old body is released, so replacing an object briefly
+        // counts both; the limit errs on the side of refusing
+        reserve(key, content.length);
+        ByteBuffer body;
+        if (offHeap) {
+            body = ByteBuffer.allocateDirect(content.length).put(content).flip();
+        } else {
+            body = ByteBuffer.wrap(content);
+        }
+        ObjectSummary summary = new ObjectSummary(key, content.length, Instant.now(), eTag(content));
+        StoredObject previous = objects.put(key, new StoredObject(summary, contentType, body.asReadOnlyBuffer()));
+        if (previous != null) {
+            usedBytes.addAndGet(-previous.summary().size());
+        }
+        return summary;
+    }
+
+    private void reserve(String key, long size) {
+        long used;
+        do {
+            used = usedBytes.get();
+            if (used + size > maxBytes) {
+                throw new StorageLimitExceededException(key, size, "the " + maxBytes + " byte store limit ("
+                        + used + " bytes in use)");
+            }
+        } while (!usedBytes.compareAndSet(used, used + size));
+    }
+
+    // Returns the summary of the removed object, or null if there was none
+    public ObjectSummary remove(String key) {
+        StoredObject removed = objects.remove(key);
+        if (removed == null) {
+            return null;
+        }
+        usedBytes.addAndGet(-removed.summary().size());
+        return removed.summary();
+    }
+
+    public ObjectSummary summary(String key) {
+        StoredObject stored = objects.get(key);
+        return stored == null ? null : stored.summary();
+    }
+
+    public ObjectMetadata head(String key) throws Exception {
+        return find(key).metadata();
+    }
+
+    public ObjectContent get(String key, HttpRange range) throws Exception {
+        StoredObject stored = find(key);
+        ObjectMetadata metadata = stored.metadata();
+        long size = metadata.size();
+        // Each reader gets its own view of the shared body
+        ByteBuffer body = stored.body().duplicate();
+        if (range == null) {
+            return new ObjectContent(metadata, new ByteBufferInputStream(body), size, null);
+        }
+
+        ByteRange served = ByteRange.resolve(range, size);
+        if (served == null) {
+            throw new RangeNotSatisfiableException(key, size);
+        }
+        body.position((int) served.start()).limit((int) (served.start() + served.length()));
+        return new ObjectContent(metadata, new ByteBufferInputStream(body), served.length(), served);
+    }
+
+    private StoredObject find(String key) throws Exception {
+        StoredObject stored = objects.get(key);
+        if (stored == null) {
+            throw new Exception("File not found: " + key);
+        }
+        return stored;
+    }
+
+    public ListingPage listPage(String prefix, String delimiter, String cursor, int pageSize) {
+        return ListingPage.fromSorted(objects, StoredObject::summary, prefix, delimiter, cursor, pageSize);
+    }
+
+    public List<String> keys(String prefix) {
+        return new ArrayList<>(range(prefix).keySet());
+    }
+
+    public void listKeyPages(String prefix, int pageSize, Consumer<List<String>> pageConsumer) {
+        List<String> page = new ArrayList<>(pageSize);
+        for (String key : range(prefix).keySet()) {
+            page.add(key);
+            if (page.size() == pageSize) {
+                pageConsumer.accept(page);
+                page = new ArrayList<>(pageSize);
+            }
+        }
+        if (!page.isEmpty()) {
+            pageConsumer.accept(page);
+        }
+    }
+
+    // Hands the summaries under the prefix to the consumer in sorted pages. The map
+    // iterates weakly consistently: writes made during the walk may or may not show.
+    public void listSummaryPages(String prefix, int pageSize, Consumer<List<ObjectSummary>> pageConsumer) {
+        List<ObjectSummary> page = new ArrayList<>(pageSize);
+        for (StoredObject stored : range(prefix).values()) {
+            page.add(stored.summary());
+            if (page.size() == pageSize) {
+                pageConsumer.accept(page);
+                page = new ArrayList<>(pageSize);
+            }
+        }
+        if (!page.isEmpty()) {
+            pageConsumer.accept(page);
+        }
+    }
+
+    private NavigableMap<String, StoredObject> range(String prefix) {
+        return ListingPage.withPrefix(objects, prefix);
+    }
+
+    // Mimics S3: the ETag of a single-part object is the quoted MD5 of its content
+    private static String eTag(byte[] content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(content);
+            return "\"" + HexFormat.of().formatHex(digest) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 not available", e);
+        }
+    }
+}
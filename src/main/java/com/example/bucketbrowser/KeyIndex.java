@@ -0,0 +1,266 @@
+package com.example.bucketbrowser;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+// In-memory, sorted index of every key in the bucket. Writes made through the app
+// update it in place; KeyIndexSynchronizer reconciles it against the backend
+// periodically to pick up writes made outside the app. Listings are served from
+// here as long as the last full reconcile is within the staleness bound.
+//
+// Every change to a key is applied and announced under that key's lock stripe, so
+// listeners see the changes to one key in the order the index took them.
+@Component
+public class KeyIndex {
+    private static final Logger logger = LoggerFactory.getLogger(KeyIndex.class);
+
+    // Notified of every change to the index, whether it came from an app write or a reconcile.
+    // previous == null means the key was created, current == null means it was deleted.
+    // Called with the key's lock stripe held, so listeners must not write to the index.
+    public interface Listener {
+        void keyChanged(String key, ObjectSummary previous, ObjectSummary current);
+
+        // Called after every completed full reconcile, for listeners that keep totals
+        // and want to correct them against the whole index now and then
+        default void reconciled() {
+        }
+    }
+
+    @Value("${bucket.index.enabled:true}")
+    private boolean enabled;
+
+    @Value("${bucket.index.max-staleness-ms:300000}")
+    private long maxStalenessMs;
+
+    private final ConcurrentSkipListMap<String, ObjectSummary> entries = new ConcurrentSkipListMap<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    // Keys deleted or written through the app while a reconcile is running, so a
+    // listing page fetched before the write does not resurrect or roll them back
+    private final Map<String, Long> recentDeletes = new ConcurrentHashMap<>();
+    private final Map<String, Long> recentPuts = new ConcurrentHashMap<>();
+
+    private static final int STRIPES = 64;
+    private final Object[] stripes = new Object[STRIPES];
+
+    public KeyIndex() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Object();
+        }
+    }
+
+    private volatile boolean ready = false;
+    private volatile long lastSyncMillis = 0;
+    private volatile long reconcileStartedMillis = 0;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    // Ready means at least one full reconcile has completed
+    public boolean isReady() {
+        return ready;
+    }
+
+    // Fresh means the index may be used in place of the backend for listings
+    public boolean isFresh() {
+        return enabled && ready && System.currentTimeMillis() - lastSyncMillis <= maxStalenessMs;
+    }
+
+    public long getLastSyncMillis() {
+        return lastSyncMillis;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public ObjectSummary get(String key) {
+        return entries.get(key);
+    }
+
+    private Object stripe(String key) {
+        return stripes[(key.hashCode() & 0x7fffffff) % STRIPES];
+    }
+
+    public void put(ObjectSummary summary) {
+        if (!enabled) {
+            return;
+        }
+        String key = summary.key();
+        synchronized (stripe(key)) {
+            recentDeletes.remove(key);
+            if (reconcileStartedMillis != 0) {
+                recentPuts.put(key, System.currentTimeMillis());
+            }
+            ObjectSummary previous = entries.put(key, summary);
+            notifyListeners(key, previous, summary);
+        }
+    }
+
+    public void remove(String key) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (stripe(key)) {
+            recentPuts.remove(key);
+            if (reconcileStartedMillis != 0) {
+                recentDeletes.put(key, System.currentTimeMillis());
+            }
+            ObjectSummary previous = entries.remove(key);
+            if (previous != null) {
+                notifyListeners(key, previous, null);
+            }
+        }
+    }
+
+    public ListingPage listPage(String prefix, String delimiter, String cursor, int pageSize) {
+        return ListingPage.fromSorted(entries, prefix, delimiter, cursor, pageSize);
+    }
+
+    public List<String> keysWithPrefix(String prefix, int limit) {
+        List<String> keys = new ArrayList<>(Math.min(limit, 1024));
+        for (String key : range(prefix).keySet()) {
+            if (keys.size() == limit) {
+                break;
+            }
+            keys.add(key);
+        }
+        return keys;
+    }
+
+    // Hands the keys under the prefix to the consumer in sorted chunks, without
+    // copying the whole key set
+    public void listKeyPages(String prefix, int pageSize, Consumer<List<String>> pageConsumer) {
+        List<String> page = new ArrayList<>(pageSize);
+        for (String key : range(prefix).keySet()) {
+            page.add(key);
+            if (page.size() == pageSize) {
+                pageConsumer.accept(page);
+                page = new ArrayList<>(pageSize);
+            }
+        }
+        if (!page.isEmpty()) {
+            pageConsumer.accept(page);
+        }
+    }
+
+    // Same as listKeyPages, with the metadata of each key
+    public void listSummaryPages(String prefix, int pageSize, Consumer<List<ObjectSummary>> pageConsumer) {
+        List<ObjectSummary> page = new ArrayList<>(pageSize);
+        for (ObjectSummary summary : range(prefix).values()) {
+            page.add(summary);
+            if (page.size() == pageSize) {
+                pageConsumer.accept(page);
+                page = new ArrayList<>(pageSize);
+            }
+        }
+        if (!page.isEmpty()) {
+            pageConsumer.accept(page);
+        }
+    }
+
+    private NavigableMap<String, ObjectSummary> range(String prefix) {
+        return ListingPage.withPrefix(entries, prefix);
+    }
+
+    // Brings the index in line with a full listing of the backend. The listing
+    // callback is driven page by page so the backend listing never has to be held
+    // in memory next to the index.
+    public void reconcile(Consumer<Consumer<List<ObjectSummary>>> fullListing) {
+        if (!enabled) {
+            return;
+        }
+        long startedAt = System.currentTimeMillis();
+        reconcileStartedMillis = startedAt;
+        int[] changes = {0};
+        try {
+            Set<String> seen = new HashSet<>(Math.max(16, entries.size() * 4 / 3));
+            fullListing.accept(page -> {
+                for (ObjectSummary summary : page) {
+                    String key = summary.key();
+                    seen.add(key);
+                    synchronized (stripe(key)) {
+                        // The page may predate an app write to the key; the app's version wins
+                        if (recentDeletes.containsKey(key) || recentPuts.containsKey(key)) {
+                            continue;
+                        }
+                        // Same content still picks up the backend's own timestamp and ETag, quietly
+                        ObjectSummary previous = entries.put(key, summary);
+                        if (previous == null || !previous.sameContent(summary)) {
+                            notifyListeners(key, previous, summary);
+                            changes[0]++;
+                        }
+                    }
+                }
+            });
+
+            for (Map.Entry<String, ObjectSummary> entry : entries.entrySet()) {
+                if (seen.contains(entry.getKey())) {
+                    continue;
+                }
+                // Written through the app after the listing started, so the listing could not have seen it
+                Long written = entry.getValue().lastModified() == null
+                        ? null
+                        : entry.getValue().lastModified().toEpochMilli();
+                if ((written != null && written >= startedAt) || recentPuts.containsKey(entry.getKey())) {
+                    continue;
+                }
+                synchronized (stripe(entry.getKey())) {
+                    if (entries.remove(entry.getKey(), entry.getValue())) {
+                        notifyListeners(entry.getKey(), entry.getValue(), null);
+                        changes[0]++;
+                    }
+                }
+            }
+
+            lastSyncMillis = startedAt;
+            for (Listener listener : listeners) {
+                try {
+                    listener.reconciled();
+                } catch (Exception e) {
+                    logger.warn("Key index listener failed after reconcile: {}", e.getMessage(), e);
+                }
+            }
+            if (!ready) {
+                ready = true;
+                logger.info("Key index warmed with {} keys in {} ms", entries.size(),
+                        System.currentTimeMillis() - startedAt);
+            } else {
+                logger.debug("Key index reconciled: {} keys, {} changes, {} ms", entries.size(), changes[0],
+                        System.currentTimeMillis() - startedAt);
+            }
+        } finally {
+            reconcileStartedMillis = 0;
+            recentDeletes.clear();
+            recentPuts.clear();
+        }
+    }
+
+    private void notifyListeners(String key, ObjectSummary previous, ObjectSummary current) {
+        for (Listener listener : listeners) {
+            try {
+                listener.keyChanged(key, previous, current);
+            } catch (Exception e) {
+                logger.warn("Key index listener failed for key {}: {}", key, e.getMessage(), e);
+            }
+        }
+    }
+}
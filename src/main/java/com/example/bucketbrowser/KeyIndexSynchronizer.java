@@ -0,0 +1,37 @@
+package com.example.bucketbrowser;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+// Warms the key index in the background at startup and then periodically
+// reconciles it against the backend to catch writes made outside the app
+@Component
+public class KeyIndexSynchronizer {
+    private static final Logger logger = LoggerFactory.getLogger(KeyIndexSynchronizer.class);
+
+    private final KeyIndex keyIndex;
+    private final StorageBackend storage;
+
+    @Autowired
+    public KeyIndexSynchronizer(KeyIndex keyIndex, StorageBackend storage) {
+        this.keyIndex = keyIndex;
+        this.storage = storage;
+    }
+
+    @Scheduled(initialDelay = 0, fixedDelayString = "${bucket.index.reconcile-interval-ms:60000}")
+    public void reconcile() {
+        if (!keyIndex.isEnabled()) {
+            return;
+        }
+        try {
+            keyIndex.reconcile(pageConsumer -> storage.listObjectSummaries(null, pageConsumer));
+        } catch (Exception e) {
+            // Leave the index as it was; once it ages past the staleness bound
+            // listings fall back to the backend
+            logger.error("Failed to reconcile key index: {}", e.getMessage(), e);
+        }
+    }
+}
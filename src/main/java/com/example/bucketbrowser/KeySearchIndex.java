@@ -0,0 +1,353 @@
+package com.example.bucketbrowser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+
+// Trigram index over every key in the key index, for case-insensitive substring
+// and glob search across the whole bucket. Each key gets an integer id; every
+// three-character window of the lower-cased key maps to a sorted posting list of
+// ids. A query intersects the posting lists of its own trigrams, smallest first,
+// and only the surviving candidates are checked against the actual pattern.
+// It follows the key index through its listener, so app writes and reconciles
+// both keep it current, and is checked against the key index after every full
+// reconcile so any drift is repaired.
+@Component
+public class KeySearchIndex implements KeyIndex.Listener {
+    private static final Logger logger = LoggerFactory.getLogger(KeySearchIndex.class);
+
+    public static final int DEFAULT_LIMIT = 100;
+    public static final int MAX_LIMIT = 1000;
+
+    public enum Mode { SUBSTRING, PREFIX, GLOB }
+
+    public record SearchResult(List<String> keys, boolean truncated) {
+    }
+
+    private final KeyIndex keyIndex;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Guarded by lock
+    private final List<String> keysById = new ArrayList<>();
+    private final Map<String, Integer> idsByKey = new HashMap<>();
+    private final Map<Long, PostingList> postings = new HashMap<>();
+    private int deletedIds = 0;
+
+    @Autowired
+    public KeySearchIndex(KeyIndex keyIndex) {
+        this.keyIndex = keyIndex;
+    }
+
+    @PostConstruct
+    public void init() {
+        keyIndex.addListener(this);
+    }
+
+    public boolean isReady() {
+        return keyIndex.isReady();
+    }
+
+    @Override
+    public void keyChanged(String key, ObjectSummary previous, ObjectSummary current) {
+        if (previous == null && current != null) {
+            add(key);
+        } else if (previous != null && current == null) {
+            remove(key);
+        }
+    }
+
+    // Drops keys the key index no longer has and adds the ones it is missing
+    @Override
+    public void reconciled() {
+        List<String> stale = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (String key : idsByKey.keySet()) {
+                if (keyIndex.get(key) == null) {
+                    stale.add(key);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<String> missing = new ArrayList<>();
+        keyIndex.listKeyPages(null, 1000, page -> {
+            lock.readLock().lock();
+            try {
+                for (String key : page) {
+                    if (!idsByKey.containsKey(key)) {
+                        missing.add(key);
+                    }
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+        });
+        // Checked again, since a change may have been applied in the meantime
+        for (String key : stale) {
+            if (keyIndex.get(key) == null) {
+                remove(key);
+            }
+        }
+        for (String key : missing) {
+            if (keyIndex.get(key) != null) {
+                add(key);
+            }
+        }
+        if (!stale.isEmpty() || !missing.isEmpty()) {
+            logger.info("Search index resynced with the key index: {} stale, {} missing keys",
+                    stale.size(), missing.size());
+        }
+    }
+
+    private void add(String key) {
+        lock.writeLock().lock();
+        try {
+            if (idsByKey.containsKey(key)) {
+                return;
+            }
+            int id = keysById.size();
+            keysById.add(key);
+            idsByKey.put(key, id);
+            for (long trigram : trigrams(key.toLowerCase(Locale.ROOT))) {
+                postings.computeIfAbsent(trigram, t -> new PostingList()).add(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void remove(String key) {
+        lock.writeLock().lock();
+        try {
+            Integer id = idsByKey.remove(key);
+            if (id == null) {
+                return;
+            }
+            // Posting lists keep the stale id until the next compaction; lookups skip it
+            keysById.set(id, null);
+            deletedIds++;
+            if (deletedIds > 1024 && deletedIds > idsByKey.size()) {
+                compact();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Renumbers the live keys densely and rebuilds the posting lists without tombstones
+    private void compact() {
+        long started = System.currentTimeMillis();
+        List<String> live = new ArrayList<>(idsByKey.size());
+        for (String key : keysById) {
+            if (key != null) {
+                live.add(key);
+            }
+        }
+        keysById.clear();
+        idsByKey.clear();
+        postings.clear();
+        deletedIds = 0;
+        for (String key : live) {
+            add(key);
+        }
+        logger.debug("Compacted search index to {} keys in {} ms", live.size(), System.currentTimeMillis() - started);
+    }
+
+    public SearchResult search(String query, Mode mode, String prefix, int limit) {
+        if (query == null || query.isEmpty()) {
+            throw new IllegalArgumentException("Search query must not be empty");
+        }
+        int max = limit <= 0 ? DEFAULT_LIMIT : Math.min(limit, MAX_LIMIT);
+        String scope = prefix == null ? "" : prefix;
+
+        if (mode == Mode.PREFIX) {
+            // Prefix lookups are a range scan over the sorted key index, no trigrams needed
+            List<String> keys = keyIndex.keysWithPrefix(scope + query, max + 1);
+            return toResult(keys, max);
+        }
+
+        String lowered = query.toLowerCase(Locale.ROOT);
+        Pattern pattern = mode == Mode.GLOB ? globToPattern(query) : null;
+        List<String> literals = mode == Mode.GLOB ? globLiterals(lowered) : List.of(lowered);
+
+        // Ids follow insertion order, so every match is looked at and only the
+        // alphabetically lowest max + 1 are kept, the same first N a prefix search gives
+        PriorityQueue<String> lowest = new PriorityQueue<>(max + 2, Comparator.reverseOrder());
+        lock.readLock().lock();
+        try {
+            int[] candidates = candidates(literals);
+            if (candidates == null) {
+                // Nothing long enough to use the index with, fall back to scanning every live key
+                for (String key : keysById) {
+                    keepIfMatch(lowest, max, key, scope, lowered, pattern);
+                }
+            } else {
+                for (int id : candidates) {
+                    keepIfMatch(lowest, max, keysById.get(id), scope, lowered, pattern);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<String> matches = new ArrayList<>(lowest);
+        matches.sort(Comparator.naturalOrder());
+        return toResult(matches, max);
+    }
+
+    // Keys the key index no longer has are left out, so drift never shows up as a dead link
+    private void keepIfMatch(PriorityQueue<String> lowest, int max, String key, String scope,
+                             String loweredQuery, Pattern glob) {
+        if (key == null || !matches(key, scope, loweredQuery, glob) || keyIndex.get(key) == null) {
+            return;
+        }
+        if (lowest.size() <= max) {
+            lowest.add(key);
+        } else if (key.compareTo(lowest.peek()) < 0) {
+            lowest.poll();
+            lowest.add(key);
+        }
+    }
+
+    // keys are sorted and hold at most max + 1, the last one only showing there are more
+    private static SearchResult toResult(List<String> keys, int max) {
+        boolean truncated = keys.size() > max;
+        return new SearchResult(truncated ? new ArrayList<>(keys.subList(0, max)) : keys, truncated);
+    }
+
+    private static boolean matches(String key, String scope, String loweredQuery, Pattern glob) {
+        if (!key.startsWith(scope)) {
+            return false;
+        }
+        if (glob != null) {
+            return glob.matcher(key).matches();
+        }
+        return key.toLowerCase(Locale.ROOT).contains(loweredQuery);
+    }
+
+    // Intersection of the posting lists for every trigram in the literals, or null
+    // when none of the literals is long enough to have a trigram
+    private int[] candidates(List<String> literals) {
+        Set<Long> wanted = new LinkedHashSet<>();
+        for (String literal : literals) {
+            for (long trigram : trigrams(literal)) {
+                wanted.add(trigram);
+            }
+        }
+        if (wanted.isEmpty()) {
+            return null;
+        }
+
+        List<PostingList> lists = new ArrayList<>(wanted.size());
+        for (long trigram : wanted) {
+            PostingList list = postings.get(trigram);
+            if (list == null) {
+                return new int[0];
+            }
+            lists.add(list);
+        }
+        lists.sort(Comparator.comparingInt(list -> list.size));
+
+        int[] result = Arrays.copyOf(lists.get(0).ids, lists.get(0).size);
+        for (int i = 1; i < lists.size() && result.length > 0; i++) {
+            result = intersect(result, lists.get(i));
+        }
+        return result;
+    }
+
+    // Both inputs are sorted; walks the smaller one and gallops through the larger
+    private static int[] intersect(int[] small, PostingList large) {
+        int[] out = new int[small.length];
+        int count = 0;
+        int from = 0;
+        for (int id : small) {
+            int pos = Arrays.binarySearch(large.ids, from, large.size, id);
+            if (pos >= 0) {
+                out[count++] = id;
+                from = pos + 1;
+            } else {
+                from = -pos - 1;
+            }
+            if (from >= large.size) {
+                break;
+            }
+        }
+        return Arrays.copyOf(out, count);
+    }
+
+    private static long[] trigrams(String text) {
+        if (text.length() < 3) {
+            return new long[0];
+        }
+        long[] result = new long[text.length() - 2];
+        for (int i = 0; i + 2 < text.length(); i++) {
+            result[i] = ((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2);
+        }
+        return result;
+    }
+
+    // The literal runs between wildcards; each must appear somewhere in a matching key
+    private static List<String> globLiterals(String glob) {
+        List<String> literals = new ArrayList<>();
+        for (String part : glob.split("[*?]")) {
+            if (part.length() >= 3) {
+                literals.add(part);
+            }
+        }
+        return literals;
+    }
+
+    // '*' matches any run of characters (including '/'), '?' matches exactly one
+    static Pattern globToPattern(String glob) {
+        StringBuilder regex = new StringBuilder();
+        StringBuilder literal = new StringBuilder();
+        for (char c : glob.toCharArray()) {
+            if (c == '*' || c == '?') {
+                if (literal.length() > 0) {
+                    regex.append(Pattern.quote(literal.toString()));
+                    literal.setLength(0);
+                }
+                regex.append(c == '*' ? ".*" : ".");
+            } else {
+                literal.append(c);
+            }
+        }
+        if (literal.length() > 0) {
+            regex.append(Pattern.quote(literal.toString()));
+        }
+        return Pattern.compile(regex.toString(), Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE | Pattern.DOTALL);
+    }
+
+    // Growable sorted int array; ids are handed out in increasing order so appends keep it sorted
+    private static final class PostingList {
+        int[] ids = new int[4];
+        int size = 0;
+
+        void add(int id) {
+            if (size > 0 && ids[size - 1] == id) {
+                return;
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+    }
+}
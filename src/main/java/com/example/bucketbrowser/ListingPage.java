@@ -0,0 +1,164 @@
+package com.example.bucketbrowser;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.function.Function;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+// One page of a bucket listing. The cursor is opaque to clients; it carries the
+// last key (or common prefix) returned so the next page can start after it.
+// Prefixes are only populated for delimited (folder) listings. The plain JSON
+// form carries the keys only; CompactListing.Page carries the metadata as well.
+public record ListingPage(@JsonIgnore List<ObjectSummary> objects, List<String> prefixes, String nextCursor) {
+
+    public static final int MAX_PAGE_SIZE = 1000;
+
+    // Highest code point, used to step past every key under a common prefix in S3,
+    // which orders keys by their UTF-8 bytes. Java strings order by UTF-16 code unit,
+    // where this surrogate pair sorts below U+E000..U+FFFF; in-memory listings use
+    // resumeFrom instead.
+    private static final String MAX_SUFFIX = new String(Character.toChars(Character.MAX_CODE_POINT));
+
+    @JsonProperty("keys")
+    public List<String> keys() {
+        return objects.stream().map(ObjectSummary::key).toList();
+    }
+
+    public static String encodeCursor(String lastKey) {
+        if (lastKey == null) {
+            return null;
+        }
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(lastKey.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static String decodeCursor(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid listing cursor: " + cursor, e);
+        }
+    }
+
+    // Turns a cursor into the key to start listing after. When the previous page ended
+    // on a common prefix, every key under that prefix has to be skipped as well,
+    // otherwise the same folder would be returned again at the top of the next page.
+    public static String startAfter(String cursor, String prefix, String delimiter) {
+        String last = decodeCursor(cursor);
+        if (last == null) {
+            return null;
+        }
+        if (isDelimited(delimiter) && last.endsWith(delimiter)
+                && last.length() > normalizePrefix(prefix).length()) {
+            return last + MAX_SUFFIX;
+        }
+        return last;
+    }
+
+    // Same as startAfter, as the first key (inclusive) the next page may start at in
+    // String order. Past a common prefix that is the prefix's successor, otherwise
+    // the smallest string after the last key.
+    public static String resumeFrom(String cursor, String prefix, String delimiter) {
+        String last = decodeCursor(cursor);
+        if (last == null) {
+            return null;
+        }
+        if (isDelimited(delimiter) && last.endsWith(delimiter)
+                && last.length() > normalizePrefix(prefix).length()) {
+            String successor = successor(last);
+            // Nothing sorts after a run of U+FFFF; keep the cursor so the listing ends
+            return successor == null ? last + Character.MAX_VALUE : successor;
+        }
+        return last + '\0';
+    }
+
+    // The smallest string above every string starting with the prefix: the prefix with
+    // its last char incremented, after dropping trailing U+FFFF. Null when there is none.
+    static String successor(String prefix) {
+        int end = prefix.length();
+        while (end > 0 && prefix.charAt(end - 1) == Character.MAX_VALUE) {
+            end--;
+        }
+        if (end == 0) {
+            return null;
+        }
+        return prefix.substring(0, end - 1) + (char) (prefix.charAt(end - 1) + 1);
+    }
+
+    // The entries of a sorted map whose keys start with the prefix
+    public static <V> NavigableMap<String, V> withPrefix(NavigableMap<String, V> sorted, String prefix) {
+        if (prefix == null || prefix.isEmpty()) {
+            return sorted;
+        }
+        String successor = successor(prefix);
+        return successor == null
+                ? sorted.tailMap(prefix, true)
+                : sorted.subMap(prefix, true, successor, false);
+    }
+
+    public static int clampPageSize(Integer pageSize) {
+        if (pageSize == null || pageSize <= 0) {
+            return MAX_PAGE_SIZE;
+        }
+        return Math.min(pageSize, MAX_PAGE_SIZE);
+    }
+
+    public static String normalizePrefix(String prefix) {
+        return prefix == null ? "" : prefix;
+    }
+
+    public static boolean isDelimited(String delimiter) {
+        return delimiter != null && !delimiter.isEmpty();
+    }
+
+    // Builds a page from an in-memory sorted map with the same semantics as
+    // ListObjectsV2: keys and common prefixes both count towards the page size.
+    public static ListingPage fromSorted(NavigableMap<String, ObjectSummary> sorted, String prefix, String delimiter,
+                                         String cursor, int pageSize) {
+        return fromSorted(sorted, Function.identity(), prefix, delimiter, cursor, pageSize);
+    }
+
+    // Same, for a map whose values carry a summary rather than being one
+    public static <V> ListingPage fromSorted(NavigableMap<String, V> sorted, Function<V, ObjectSummary> summary,
+                                             String prefix, String delimiter, String cursor, int pageSize) {
+        String normalizedPrefix = normalizePrefix(prefix);
+        boolean delimited = isDelimited(delimiter);
+        String from = resumeFrom(cursor, prefix, delimiter);
+
+        Map.Entry<String, V> next = sorted.ceilingEntry(
+                from == null || from.compareTo(normalizedPrefix) < 0 ? normalizedPrefix : from);
+
+        List<ObjectSummary> objects = new ArrayList<>();
+        List<String> prefixes = new ArrayList<>();
+        String last = null;
+        while (next != null && next.getKey().startsWith(normalizedPrefix)) {
+            if (objects.size() + prefixes.size() == pageSize) {
+                return new ListingPage(objects, prefixes, encodeCursor(last));
+            }
+
+            String key = next.getKey();
+            int split = delimited ? key.indexOf(delimiter, normalizedPrefix.length()) : -1;
+            if (split >= 0) {
+                String commonPrefix = key.substring(0, split + delimiter.length());
+                prefixes.add(commonPrefix);
+                last = commonPrefix;
+                String successor = successor(commonPrefix);
+                next = successor == null ? null : sorted.ceilingEntry(successor);
+            } else {
+                objects.add(summary.apply(next.getValue()));
+                last = key;
+                next = sorted.higherEntry(key);
+            }
+        }
+        return new ListingPage(objects, prefixes, null);
+    }
+}
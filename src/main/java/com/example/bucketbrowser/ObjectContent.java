@@ -0,0 +1,45 @@
+package com.example.bucketbrowser;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import software.amazon.awssdk.http.Abortable;
+
+// An open object body plus the metadata the backend returned with it. For a ranged
+// read, range is the part of the object the stream covers and contentLength is its
+// length; otherwise range is null and the stream is the whole object. The caller
+// owns the stream and must close it, typically by calling transferTo.
+public record ObjectContent(ObjectMetadata metadata, InputStream stream, long contentLength,
+                            ByteRange range) implements Closeable {
+
+    public long transferTo(OutputStream out) throws IOException {
+        boolean complete = false;
+        try {
+            long written = TransferBuffers.copy(stream, out);
+            complete = true;
+            return written;
+        } finally {
+            if (complete) {
+                close();
+            } else {
+                abort();
+            }
+        }
+    }
+
+    // Drops the connection instead of draining the rest of the body, which is what
+    // a plain close would do for an S3 stream the client gave up on halfway
+    public void abort() throws IOException {
+        if (stream instanceof Abortable abortable) {
+            abortable.abort();
+        }
+        close();
+    }
+
+    @Override
+    public void close() throws IOException {
+        stream.close();
+    }
+}
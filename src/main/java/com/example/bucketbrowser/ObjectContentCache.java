@@ -0,0 +1,365 @@
+package com.example.bucketbrowser;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpRange;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import jakarta.annotation.PostConstruct;
+
+// Read-through cache of small object bodies, in front of S3. Entries are weighed
+// by their size and evicted least recently used first. Entries evicted from
+// memory move to an optional disk tier, whose files are served memory-mapped.
+// The cache holds bytes only: whether an entry is still current is decided by
+// S3Service, against the key index or a conditional GET. Writes through the app
+// invalidate directly, and changes found by a key index reconcile invalidate via
+// the listener.
+@Component
+public class ObjectContentCache implements KeyIndex.Listener, MeterBinder {
+    private static final Logger logger = LoggerFactory.getLogger(ObjectContentCache.class);
+
+    // Rough per-entry overhead on top of the body: key, metadata, map node
+    private static final int ENTRY_OVERHEAD = 256;
+
+    public record Entry(ObjectMetadata metadata, byte[] data, Path file, long validatedMillis) {
+
+        public long size() {
+            return metadata.size();
+        }
+
+        // The whole entry, or one range of it, as content ready to stream. A disk entry
+        // evicted since it was looked up throws NoSuchFileException.
+        public ObjectContent open(HttpRange range) throws IOException {
+            InputStream stream = data != null ? new ByteArrayInputStream(data) : mapped(file, size());
+            if (range == null) {
+                return new ObjectContent(metadata, stream, size(), null);
+            }
+            ByteRange resolved = ByteRange.resolve(range, size());
+            if (resolved == null) {
+                throw new RangeNotSatisfiableException(metadata.key(), size());
+            }
+            stream.skipNBytes(resolved.start());
+            return new ObjectContent(metadata, stream, resolved.length(), resolved);
+        }
+
+        private Entry validated(long millis) {
+            return new Entry(metadata, data, file, millis);
+        }
+    }
+
+    @Value("${bucket.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${bucket.cache.memory-size:67108864}")
+    private long memoryCapacity;
+
+    @Value("${bucket.cache.max-object-size:1048576}")
+    private long maxObjectSize;
+
+    @Value("${bucket.cache.disk-dir:}")
+    private String diskDir;
+
+    @Value("${bucket.cache.disk-size:1073741824}")
+    private long diskCapacity;
+
+    private final KeyIndex keyIndex;
+
+    // Both tiers share one lock; access order makes iteration start at the least recently used entry
+    private final LinkedHashMap<String, Entry> memory = new LinkedHashMap<>(256, 0.75f, true);
+    private final LinkedHashMap<String, Entry> disk = new LinkedHashMap<>(256, 0.75f, true);
+    // Evicted from memory and being written to disk outside the lock; still served
+    // from here meanwhile. Removing a key from here cancels its demotion.
+    private final Map<String, Entry> demoting = new HashMap<>();
+    private long memoryBytes = 0;
+    private long diskBytes = 0;
+    private Path diskPath;
+    // Every spill file gets a name of its own, so two demotions of one key never collide
+    private final AtomicLong fileSequence = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    @Autowired
+    public ObjectContentCache(KeyIndex keyIndex) {
+        this.keyIndex = keyIndex;
+    }
+
+    @PostConstruct
+    public void init() throws IOException {
+        if (!enabled) {
+            logger.info("Object content cache disabled");
+            return;
+        }
+        keyIndex.addListener(this);
+        if (diskDir != null && !diskDir.isEmpty()) {
+            diskPath = Path.of(diskDir);
+            Files.createDirectories(diskPath);
+            // Nothing on disk is trusted across restarts: the metadata lived in memory
+            try (Stream<Path> stale = Files.list(diskPath)) {
+                stale.filter(path -> path.getFileName().toString().matches(".*\\.obj(\\.tmp)?")).forEach(path -> {
+                    try {
+                        Files.deleteIfExists(path);
+                    } catch (IOException e) {
+                        logger.warn("Could not remove stale cache file {}: {}", path, e.getMessage());
+                    }
+                });
+            }
+        }
+        logger.info("Object content cache: {} bytes in memory, objects up to {} bytes, disk tier: {}",
+                memoryCapacity, maxObjectSize, diskPath == null ? "off" : diskPath + " (" + diskCapacity + " bytes)");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isCacheable(long size) {
+        return enabled && size >= 0 && size <= maxObjectSize;
+    }
+
+    public synchronized Entry get(String key) {
+        if (!enabled) {
+            return null;
+        }
+        Entry entry = memory.get(key);
+        if (entry == null) {
+            entry = demoting.get(key);
+        }
+        if (entry == null) {
+            entry = disk.get(key);
+        }
+        if (entry == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        return entry;
+    }
+
+    // Bumped by every invalidation. A fetch that started before an invalidation may
+    // have read the old body, so put drops it instead of caching stale bytes.
+    public long invalidations() {
+        return invalidations.get();
+    }
+
+    public void put(ObjectMetadata metadata, byte[] data, long invalidationsAtFetch) {
+        List<Map.Entry<String, Entry>> evicted;
+        synchronized (this) {
+            if (!isCacheable(data.length) || invalidations.get() != invalidationsAtFetch) {
+                return;
+            }
+            String key = metadata.key();
+            removeEntry(key);
+            memory.put(key, new Entry(metadata, data, null, System.currentTimeMillis()));
+            memoryBytes += weight(key, data.length);
+            evicted = evictMemory();
+        }
+        // Disk writes happen without the lock, so hits never wait behind them
+        for (Map.Entry<String, Entry> entry : evicted) {
+            demote(entry.getKey(), entry.getValue());
+        }
+    }
+
+    // Records that the entry was confirmed current, so it is not revalidated again too soon
+    public synchronized void markValidated(String key) {
+        Entry entry = memory.get(key);
+        if (entry != null) {
+            memory.put(key, entry.validated(System.currentTimeMillis()));
+            return;
+        }
+        entry = disk.get(key);
+        if (entry != null) {
+            disk.put(key, entry.validated(System.currentTimeMillis()));
+        }
+    }
+
+    public synchronized void invalidate(String key) {
+        invalidations.incrementAndGet();
+        if (removeEntry(key)) {
+            logger.debug("Invalidated cached content for key: {}", key);
+        }
+    }
+
+    @Override
+    public void keyChanged(String key, ObjectSummary previous, ObjectSummary current) {
+        // A change the cache already holds (the entry for our own upload) keeps the entry
+        synchronized (this) {
+            Entry entry = memory.containsKey(key) ? memory.get(key)
+                    : demoting.containsKey(key) ? demoting.get(key) : disk.get(key);
+            if (entry == null || (current != null && current.eTag() != null
+                    && current.eTag().equals(entry.metadata().eTag()))) {
+                return;
+            }
+        }
+        invalidate(key);
+    }
+
+    public synchronized Map<String, Object> stats() {
+        return Map.of(
+                "entries", memory.size() + disk.size(),
+                "memoryBytes", memoryBytes,
+                "diskBytes", diskBytes,
+                "hits", hits.get(),
+                "misses", misses.get());
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (!enabled) {
+            return;
+        }
+        FunctionCounter.builder("bucket.cache.requests", hits, AtomicLong::get)
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("bucket.cache.requests", misses, AtomicLong::get)
+                .tag("result", "miss")
+                .register(registry);
+        FunctionCounter.builder("bucket.cache.invalidations", invalidations, AtomicLong::get)
+                .register(registry);
+        Gauge.builder("bucket.cache.size", this, cache -> cache.tierBytes(true))
+                .baseUnit("bytes")
+                .tag("tier", "memory")
+                .register(registry);
+        Gauge.builder("bucket.cache.size", this, cache -> cache.tierBytes(false))
+                .baseUnit("bytes")
+                .tag("tier", "disk")
+                .register(registry);
+    }
+
+    private synchronized long tierBytes(boolean inMemory) {
+        return inMemory ? memoryBytes : diskBytes;
+    }
+
+    private boolean removeEntry(String key) {
+        Entry entry = memory.remove(key);
+        if (entry != null) {
+            memoryBytes -= weight(key, entry.size());
+            return true;
+        }
+        if (demoting.remove(key) != null) {
+            return true;
+        }
+        entry = disk.remove(key);
+        if (entry != null) {
+            diskBytes -= entry.size();
+            deleteFile(entry.file());
+            return true;
+        }
+        return false;
+    }
+
+    // Returns the entries evicted from memory that should move to the disk tier
+    private List<Map.Entry<String, Entry>> evictMemory() {
+        List<Map.Entry<String, Entry>> demoted = new ArrayList<>();
+        Iterator<Map.Entry<String, Entry>> eldest = memory.entrySet().iterator();
+        while (memoryBytes > memoryCapacity && eldest.hasNext()) {
+            Map.Entry<String, Entry> evicted = eldest.next();
+            eldest.remove();
+            memoryBytes -= weight(evicted.getKey(), evicted.getValue().size());
+            if (diskPath != null) {
+                demoting.put(evicted.getKey(), evicted.getValue());
+                demoted.add(evicted);
+            }
+        }
+        return demoted;
+    }
+
+    // Writes the file without the lock, then publishes the entry unless it was
+    // invalidated or replaced meanwhile
+    private void demote(String key, Entry entry) {
+        String name = fileName(key) + "-" + fileSequence.incrementAndGet();
+        Path file = diskPath.resolve(name + ".obj");
+        Path temp = diskPath.resolve(name + ".obj.tmp");
+        try {
+            // Renamed into place once complete, so a file is only ever seen whole
+            Files.write(temp, entry.data());
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warn("Could not write cache file for key {}: {}", key, e.getMessage());
+            deleteFile(temp);
+            synchronized (this) {
+                demoting.remove(key, entry);
+            }
+            return;
+        }
+
+        List<Path> unused = new ArrayList<>();
+        synchronized (this) {
+            if (!demoting.remove(key, entry)) {
+                unused.add(file);
+            } else {
+                disk.put(key, new Entry(entry.metadata(), null, file, entry.validatedMillis()));
+                diskBytes += entry.size();
+
+                Iterator<Map.Entry<String, Entry>> eldest = disk.entrySet().iterator();
+                while (diskBytes > diskCapacity && eldest.hasNext()) {
+                    Entry evicted = eldest.next().getValue();
+                    eldest.remove();
+                    diskBytes -= evicted.size();
+                    unused.add(evicted.file());
+                }
+            }
+        }
+        unused.forEach(ObjectContentCache::deleteFile);
+    }
+
+    private static long weight(String key, long size) {
+        return size + key.length() * 2L + ENTRY_OVERHEAD;
+    }
+
+    private static String fileName(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void deleteFile(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.warn("Could not remove cache file {}: {}", file, e.getMessage());
+        }
+    }
+
+    // The mapping stays valid after the file is deleted, so a reader that got its
+    // mapping before an eviction still sees the bytes it started with
+    private static InputStream mapped(Path file, long size) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+        return new ByteBufferInputStream(buffer);
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.bucketbrowser;
+
+import java.time.Instant;
+
+// What a HEAD (or the headers of a GET) tells us about an object. contentEncoding
+// is set only for objects stored already compressed (gzip, br, ...).
+public record ObjectMetadata(String key, long size, String contentType, String eTag, Instant lastModified,
+                             String contentEncoding) {
+
+    public ObjectMetadata(String key, long size, String contentType, String eTag, Instant lastModified) {
+        this(key, size, contentType, eTag, lastModified, null);
+    }
+}
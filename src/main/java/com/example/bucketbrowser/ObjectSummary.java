@@ -0,0 +1,26 @@
+package com.example.bucketbrowser;
+
+import java.time.Instant;
+import java.util.Objects;
+
+// What the listing knows about an object without fetching it. The storage class
+// is only known from a listing, so entries recorded for the app's own writes have none.
+public record ObjectSummary(String key, long size, Instant lastModified, String eTag, String storageClass) {
+
+    public ObjectSummary(String key, long size, Instant lastModified, String eTag) {
+        this(key, size, lastModified, eTag, null);
+    }
+
+    // Whether two summaries describe the same object content. ETags are compared when
+    // both sides have one; the timestamp alone is not reliable because the app stamps
+    // its own writes with the local clock before S3 reports its own.
+    public boolean sameContent(ObjectSummary other) {
+        if (other == null || size != other.size) {
+            return false;
+        }
+        if (eTag != null && other.eTag != null) {
+            return eTag.equals(other.eTag);
+        }
+        return Objects.equals(lastModified, other.lastModified);
+    }
+}
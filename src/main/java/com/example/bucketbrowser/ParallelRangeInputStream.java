@@ -0,0 +1,184 @@
+package com.example.bucketbrowser;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+import software.amazon.awssdk.http.Abortable;
+
+// Reads one byte range of an object as consecutive chunks fetched concurrently,
+// and hands them out in order. Chunks complete in any order but are only consumed
+// from the head of the queue, so the queue is the reorder buffer: at most
+// `parallelism` chunk buffers exist, and a consumed buffer is reused for the next
+// chunk fetch. Every buffer past the first takes a permit from readAhead, which is
+// shared by all downloads; when none are left a download reads ahead less, down to
+// one chunk at a time, rather than waiting.
+public class ParallelRangeInputStream extends InputStream {
+
+    // Opens a stream over exactly the given range of the object
+    public interface RangeOpener {
+        InputStream open(ByteRange range) throws Exception;
+    }
+
+    private record Chunk(ByteRange range, byte[] buffer, Future<?> done) {
+    }
+
+    private final RangeOpener opener;
+    private final ExecutorService executor;
+    private final Semaphore readAhead;
+    private final int parallelism;
+    private final long end;
+    private final int chunkSize;
+    private final ArrayDeque<Chunk> inFlight;
+    private final InputStream firstStream;
+    private final Future<?> firstDone;
+
+    private long nextStart;
+    private Chunk current;
+    private int position;
+    // readAhead permits held, one per buffer beyond the first
+    private int permits = 0;
+    private boolean closed = false;
+
+    // firstStream is already open over the first chunk of the range, so the caller
+    // could read the object metadata from its response before handing it over
+    public ParallelRangeInputStream(RangeOpener opener, InputStream firstStream, ByteRange range, int chunkSize,
+                                    int parallelism, ExecutorService executor, Semaphore readAhead) {
+        this.opener = opener;
+        this.executor = executor;
+        this.readAhead = readAhead;
+        this.parallelism = parallelism;
+        this.end = range.end();
+        this.chunkSize = chunkSize;
+        this.inFlight = new ArrayDeque<>(parallelism);
+        this.firstStream = firstStream;
+
+        ByteRange first = new ByteRange(range.start(), Math.min(end, range.start() + chunkSize - 1));
+        byte[] buffer = new byte[(int) first.length()];
+        firstDone = executor.submit(() -> {
+            readFully(firstStream, buffer, (int) first.length());
+            return null;
+        });
+        inFlight.add(new Chunk(first, buffer, firstDone));
+        nextStart = first.end() + 1;
+        readAhead();
+    }
+
+    // Adds chunk buffers up to parallelism, as far as the shared permits allow
+    private void readAhead() {
+        while (inFlight.size() < parallelism && nextStart <= end && readAhead.tryAcquire()) {
+            permits++;
+            submitNext(new byte[(int) Math.min(chunkSize, end - nextStart + 1)]);
+        }
+    }
+
+    // Every buffer but one is backed by a permit; hands back one for a buffer let go
+    private void releaseOne() {
+        if (permits > 0) {
+            permits--;
+            readAhead.release();
+        }
+    }
+
+    private void submitNext(byte[] buffer) {
+        ByteRange range = new ByteRange(nextStart, Math.min(end, nextStart + chunkSize - 1));
+        nextStart = range.end() + 1;
+        inFlight.add(new Chunk(range, buffer, executor.submit(() -> {
+            readFully(opener.open(range), buffer, (int) range.length());
+            return null;
+        })));
+    }
+
+    private static void readFully(InputStream in, byte[] buffer, int length) throws IOException {
+        try (in) {
+            int read = in.readNBytes(buffer, 0, length);
+            if (read < length) {
+                throw new EOFException("Expected " + length + " bytes in range but got " + read);
+            }
+        }
+    }
+
+    // Makes sure current has unread bytes, waiting for the next chunk if needed
+    private boolean advance() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        if (current != null && position < current.range().length()) {
+            return true;
+        }
+        if (current != null) {
+            if (nextStart <= end) {
+                submitNext(current.buffer());
+            } else {
+                releaseOne();
+            }
+            current = null;
+            readAhead();
+        }
+
+        Chunk head = inFlight.poll();
+        if (head == null) {
+            return false;
+        }
+        try {
+            head.done().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for range " + head.range().toRangeHeader(), e);
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to fetch range " + head.range().toRangeHeader(), e.getCause());
+        }
+        current = head;
+        position = 0;
+        return true;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!advance()) {
+            return -1;
+        }
+        return current.buffer()[position++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!advance()) {
+            return -1;
+        }
+        int count = Math.min(len, (int) current.range().length() - position);
+        System.arraycopy(current.buffer(), position, b, off, count);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (Chunk chunk : inFlight) {
+            chunk.done().cancel(true);
+        }
+        inFlight.clear();
+        current = null;
+        readAhead.release(permits);
+        permits = 0;
+        // A cancelled first chunk may never have been read, so its connection is still open
+        if (firstDone.isCancelled()) {
+            if (firstStream instanceof Abortable abortable) {
+                abortable.abort();
+            }
+            firstStream.close();
+        }
+    }
+}
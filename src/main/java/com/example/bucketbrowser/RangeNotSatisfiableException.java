@@ -0,0 +1,17 @@
+package com.example.bucketbrowser;
+
+// Thrown when a requested byte range lies entirely outside the object
+public class RangeNotSatisfiableException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final long objectSize;
+
+    public RangeNotSatisfiableException(String key, long objectSize) {
+        super("Requested range not satisfiable for " + key + " (size " + objectSize + ")");
+        this.objectSize = objectSize;
+    }
+
+    public long getObjectSize() {
+        return objectSize;
+    }
+}
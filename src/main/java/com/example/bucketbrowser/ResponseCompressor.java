@@ -0,0 +1,117 @@
+package com.example.bucketbrowser;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+// Picks a content coding from Accept-Encoding and wraps response bodies in it.
+// The streams sync-flush, so every flush of a streamed response still reaches
+// the client at once instead of waiting in the deflater. Only codings the JDK can
+// produce are offered: gzip and deflate, not br.
+@Component
+public class ResponseCompressor {
+
+    public static final String GZIP = "gzip";
+    public static final String DEFLATE = "deflate";
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final boolean enabled;
+    private final int level;
+
+    public ResponseCompressor(@Value("${bucket.compression.enabled:true}") boolean enabled,
+                              @Value("${bucket.compression.level:1}") int level) {
+        this.enabled = enabled;
+        this.level = level;
+    }
+
+    // The coding to use, or null to send the body as is. Follows the q-values;
+    // on a tie gzip wins, being the one every client handles.
+    public String negotiate(String acceptEncoding) {
+        if (!enabled || acceptEncoding == null || acceptEncoding.isBlank()) {
+            return null;
+        }
+        double gzip = -1;
+        double deflate = -1;
+        double any = -1;
+        for (String part : acceptEncoding.split(",")) {
+            String[] params = part.split(";");
+            String coding = params[0].trim().toLowerCase(Locale.ROOT);
+            double q = 1;
+            for (int i = 1; i < params.length; i++) {
+                String param = params[i].trim();
+                if (param.startsWith("q=")) {
+                    try {
+                        q = Double.parseDouble(param.substring(2));
+                    } catch (NumberFormatException e) {
+                        q = 0;
+                    }
+                }
+            }
+            switch (coding) {
+                case GZIP, "x-gzip" -> gzip = q;
+                case DEFLATE -> deflate = q;
+                case "*" -> any = q;
+                default -> {
+                }
+            }
+        }
+        gzip = gzip < 0 ? any : gzip;
+        deflate = deflate < 0 ? any : deflate;
+        if (gzip > 0 && gzip >= deflate) {
+            return GZIP;
+        }
+        return deflate > 0 ? DEFLATE : null;
+    }
+
+    // Text compresses well; images, archives and most binary formats are compressed already
+    public static boolean isCompressible(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        String type = contentType.split(";")[0].trim().toLowerCase(Locale.ROOT);
+        return type.startsWith("text/")
+                || type.equals("application/json") || type.endsWith("+json")
+                || type.equals("application/xml") || type.endsWith("+xml")
+                || type.equals("application/javascript") || type.equals("application/x-ndjson")
+                || type.equals("application/x-yaml") || type.equals("application/yaml");
+    }
+
+    public OutputStream wrap(OutputStream out, String coding) throws IOException {
+        return wrap(out, coding, level);
+    }
+
+    public OutputStream wrap(OutputStream out, String coding, int level) throws IOException {
+        if (GZIP.equals(coding)) {
+            return new GzipStream(out, level);
+        }
+        if (DEFLATE.equals(coding)) {
+            // "deflate" in HTTP is the zlib format, which is what DeflaterOutputStream writes
+            Deflater deflater = new Deflater(level);
+            return new DeflaterOutputStream(out, deflater, BUFFER_SIZE, true) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        deflater.end();
+                    }
+                }
+            };
+        }
+        return out;
+    }
+
+    private static class GzipStream extends GZIPOutputStream {
+        GzipStream(OutputStream out, int level) throws IOException {
+            super(out, BUFFER_SIZE, true);
+            def.setLevel(level);
+        }
+    }
+}
@@ -1,25 +1,57 @@
 package com.example.bucketbrowser;
 
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
+import java.nio.file.NoSuchFileException;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpRange;
 import org.springframework.stereotype.Service;
 
 import jakarta.annotation.PostConstruct;
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.http.apache.ApacheHttpClient;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CommonPrefix;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.Delete;
 import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsRequest;
+import software.amazon.awssdk.services.s3.model.DeletedObject;
 import software.amazon.awssdk.services.s3.model.GetObjectRequest;
 import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadBucketRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
 import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.ObjectIdentifier;
 import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Error;
+import software.amazon.awssdk.services.s3.model.S3Exception;
 import software.amazon.awssdk.services.s3.model.S3Object;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
 import software.amazon.awssdk.core.ResponseInputStream;
 import software.amazon.awssdk.core.sync.RequestBody;
 
@@ -27,9 +59,17 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 @Service
-public class S3Service {
+public class S3Service implements StorageBackend {
     private static final Logger logger = LoggerFactory.getLogger(S3Service.class);
 
+    // S3 rejects multipart parts below 5 MiB, except for the last one
+    private static final int MIN_PART_SIZE = 5 * 1024 * 1024;
+    // Single PUTs are held in memory so the SDK can replay them on retry
+    private static final long MAX_BUFFERED_PUT = 512L * 1024 * 1024;
+
+    // Most keys a single DeleteObjects request accepts
+    public static final int MAX_DELETE_BATCH = 1000;
+
     @Value("${bucket.access.key:}")
     private String accessKey;
 
@@ -42,9 +82,56 @@ public class S3Service {
     @Value("${bucket.name:}")
     private String bucketName;
 
+    // Every in-flight transfer holds one connection, so this caps concurrent S3 calls
+    @Value("${bucket.s3.max-connections:200}")
+    private int maxConnections;
+
+    @Value("${bucket.s3.connection-acquisition-timeout-ms:30000}")
+    private long connectionAcquisitionTimeoutMs;
+
+    @Value("${bucket.upload.multipart-threshold:16777216}")
+    private long multipartThreshold;
+
+    @Value("${bucket.upload.part-size:8388608}")
+    private int partSize;
+
+    @Value("${bucket.upload.parallelism:4}")
+    private int uploadParallelism;
+
+    @Value("${bucket.download.parallel-threshold:67108864}")
+    private long parallelDownloadThreshold;
+
+    @Value("${bucket.download.part-size:8388608}")
+    private int downloadPartSize;
+
+    @Value("${bucket.download.parallelism:4}")
+    private int downloadParallelism;
+
+    @Value("${bucket.delete.parallelism:4}")
+    private int deleteParallelism;
+
+    @Value("${bucket.cache.revalidate-after-ms:30000}")
+    private long cacheRevalidateAfterMs;
+
+    private final KeyIndex keyIndex;
+    private final ObjectContentCache contentCache;
+    private final ExecutorService transferExecutor;
+    private final Semaphore readAheadPermits;
+    private final BucketMetrics bucketMetrics;
+
     private S3Client s3Client;
     private boolean initialized = false;
 
+    @Autowired
+    public S3Service(KeyIndex keyIndex, ObjectContentCache contentCache, ExecutorService transferExecutor,
+                     Semaphore readAheadPermits, BucketMetrics bucketMetrics) {
+        this.keyIndex = keyIndex;
+        this.contentCache = contentCache;
+        this.transferExecutor = transferExecutor;
+        this.readAheadPermits = readAheadPermits;
+        this.bucketMetrics = bucketMetrics;
+    }
+
     @PostConstruct
     public void init() {
         if (endpoint == null || endpoint.isEmpty()) {
@@ -57,12 +144,25 @@ public class S3Service {
         var creds = AwsBasicCredentials.create(accessKey, secretKey);
         String region = "us-east-1"; // Not applicable for ocp, default it.
         this.s3Client = S3Client.builder()
+                .httpClientBuilder(ApacheHttpClient.builder()
+                        .maxConnections(maxConnections)
+                        .connectionAcquisitionTimeout(Duration.ofMillis(connectionAcquisitionTimeoutMs)))
                 .endpointOverride(URI.create(endpoint))
                 .region(Region.of(region))
                 .credentialsProvider(StaticCredentialsProvider.create(creds))
                 .forcePathStyle(true) // Required for OpenShift ODF
+                .overrideConfiguration(config -> config.addExecutionInterceptor(bucketMetrics))
                 .build();
 
+        if (partSize < MIN_PART_SIZE) {
+            logger.warn("bucket.upload.part-size {} is below the S3 minimum, using {}", partSize, MIN_PART_SIZE);
+            partSize = MIN_PART_SIZE;
+        }
+        if (multipartThreshold > MAX_BUFFERED_PUT) {
+            logger.warn("bucket.upload.multipart-threshold {} is too large to buffer, using {}", multipartThreshold, MAX_BUFFERED_PUT);
+            multipartThreshold = MAX_BUFFERED_PUT;
+        }
+
         initialized = true;
         logger.info("S3 client initialized successfully");
     }
@@ -71,6 +171,16 @@ public class S3Service {
         return initialized;
     }
 
+    @Override
+    public String name() {
+        return "s3";
+    }
+
+    @Override
+    public void checkHealth() {
+        headBucket();
+    }
+
     private void requireInitialized() {
         if (!initialized) {
             throw new IllegalStateException("S3 client is not initialized — bucket configuration is missing");
@@ -78,85 +188,529 @@ public class S3Service {
     }
 
     public List<String> listBucketContents() {
-        requireInitialized();
-        logger.debug("Listing contents of bucket: {}", bucketName);
         ArrayList<String> result = new ArrayList<String>();
+        listBucketPages(null, result::addAll);
+        return result;
+    }
+
+    // Walks every page under the prefix, following continuation tokens, and hands each
+    // page of keys to the consumer as soon as it arrives from S3.
+    @Override
+    public void listBucketPages(String prefix, Consumer<List<String>> pageConsumer) {
+        listObjectPages(prefix, response -> {
+            List<String> keys = new ArrayList<>(response.contents().size());
+            for (S3Object object : response.contents()) {
+                keys.add(object.key());
+            }
+            pageConsumer.accept(keys);
+        });
+    }
+
+    // Same walk as listBucketPages, but keeps the metadata ListObjectsV2 returns for free
+    public void listObjectSummaries(Consumer<List<ObjectSummary>> pageConsumer) {
+        listObjectSummaries(null, pageConsumer);
+    }
+
+    @Override
+    public void listObjectSummaries(String prefix, Consumer<List<ObjectSummary>> pageConsumer) {
+        listObjectPages(prefix, response -> {
+            List<ObjectSummary> summaries = new ArrayList<>(response.contents().size());
+            for (S3Object object : response.contents()) {
+                summaries.add(summarize(object));
+            }
+            pageConsumer.accept(summaries);
+        });
+    }
+
+    private static ObjectSummary summarize(S3Object object) {
+        return new ObjectSummary(object.key(), object.size(), object.lastModified(), object.eTag(),
+                object.storageClassAsString());
+    }
+
+    private void listObjectPages(String prefix, Consumer<ListObjectsV2Response> responseConsumer) {
+        requireInitialized();
+        logger.debug("Listing contents of bucket: {}, prefix: {}", bucketName, prefix);
 
         try {
             var request = ListObjectsV2Request.builder()
                     .bucket(bucketName)
+                    .prefix(prefix)
+                    .maxKeys(ListingPage.MAX_PAGE_SIZE)
+                    .build();
+
+            int pages = 0;
+            long total = 0;
+            for (ListObjectsV2Response response : s3Client.listObjectsV2Paginator(request)) {
+                pages++;
+                total += response.contents().size();
+                responseConsumer.accept(response);
+            }
+
+            logger.debug("Found {} objects in bucket across {} pages", total, pages);
+        } catch (Exception e) {
+            logger.error("Failed to list objects: {}", e.getMessage(), e);
+            throw new RuntimeException("Failed to list objects", e);
+        }
+    }
+
+    // Lists a single page. With a delimiter this is a folder view: only the direct
+    // children of the prefix are returned, deeper keys are rolled up into prefixes.
+    @Override
+    public ListingPage listPage(String prefix, String delimiter, String cursor, int pageSize) {
+        requireInitialized();
+        String startAfter = ListingPage.startAfter(cursor, prefix, delimiter);
+        logger.debug("Listing page of bucket: {}, prefix: {}, delimiter: {}, startAfter: {}, pageSize: {}",
+                bucketName, prefix, delimiter, startAfter, pageSize);
+
+        try {
+            var request = ListObjectsV2Request.builder()
+                    .bucket(bucketName)
+                    .prefix(prefix)
+                    .delimiter(ListingPage.isDelimited(delimiter) ? delimiter : null)
+                    .maxKeys(pageSize)
+                    .startAfter(startAfter)
                     .build();
 
             var response = s3Client.listObjectsV2(request);
 
+            List<ObjectSummary> objects = new ArrayList<>(response.contents().size());
             for (S3Object object : response.contents()) {
-                result.add(object.key());
+                objects.add(summarize(object));
+            }
+            List<String> prefixes = new ArrayList<>(response.commonPrefixes().size());
+            for (CommonPrefix commonPrefix : response.commonPrefixes()) {
+                prefixes.add(commonPrefix.prefix());
             }
 
-            logger.debug("Found {} objects in bucket", result.size());
+            String nextCursor = null;
+            if (Boolean.TRUE.equals(response.isTruncated())) {
+                // Keys and prefixes are sorted separately, the page ends at whichever is greater
+                String lastKey = objects.isEmpty() ? null : objects.get(objects.size() - 1).key();
+                String lastPrefix = prefixes.isEmpty() ? null : prefixes.get(prefixes.size() - 1);
+                String last = lastKey == null || (lastPrefix != null && lastPrefix.compareTo(lastKey) > 0)
+                        ? lastPrefix
+                        : lastKey;
+                nextCursor = ListingPage.encodeCursor(last);
+            }
+            return new ListingPage(objects, prefixes, nextCursor);
         } catch (Exception e) {
             logger.error("Failed to list objects: {}", e.getMessage(), e);
+            throw new RuntimeException("Failed to list objects", e);
         }
-
-        return result;
     }
 
-    public byte[] downloadFile(String key) throws Exception {
+    // Cheapest call that proves the endpoint, the credentials and the bucket all work
+    public void headBucket() {
         requireInitialized();
-        logger.debug("Downloading file with key: {}", key);
+        s3Client.headBucket(HeadBucketRequest.builder().bucket(bucketName).build());
+    }
 
-        // Build the GetObjectRequest to fetch the file
-        GetObjectRequest getObjectRequest = GetObjectRequest.builder()
-                .bucket(bucketName)
-                .key(key)
-                .build();
+    @Override
+    public ObjectMetadata headObject(String key) {
+        requireInitialized();
+        logger.debug("Fetching metadata for key: {}", key);
 
         try {
-            // Get the object from the S3 bucket as InputStream
-            ResponseInputStream<GetObjectResponse> s3ObjectInputStream = s3Client.getObject(getObjectRequest);
+            HeadObjectResponse response = s3Client.headObject(HeadObjectRequest.builder()
+                    .bucket(bucketName)
+                    .key(key)
+                    .build());
+            return new ObjectMetadata(key, response.contentLength(), response.contentType(),
+                    response.eTag(), response.lastModified(), storedEncoding(response.contentEncoding()));
+        } catch (Exception e) {
+            logger.error("Failed to fetch metadata for key {}: {}", key, e.getMessage(), e);
+            throw e;
+        }
+    }
+
+    @Override
+    public ObjectContent downloadFile(String key) throws Exception {
+        return downloadFile(key, null);
+    }
+
+    // Opens the object, or one byte range of it, for streaming. Nothing is buffered
+    // here: the caller copies straight from the S3 response stream and is
+    // responsible for closing it. Reads above the parallel threshold are split into
+    // ranged GETs that run concurrently; the size comes from the key index, so
+    // keys the index does not know yet are always read over a single stream.
+    @Override
+    public ObjectContent downloadFile(String key, HttpRange range) throws Exception {
+        requireInitialized();
+
+        ObjectContent cached = openCached(key, range);
+        if (cached != null) {
+            return cached;
+        }
 
-            // Read the InputStream into a byte array
-            ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-            byte[] buffer = new byte[1024];
-            int length;
-            while ((length = s3ObjectInputStream.read(buffer)) > -1) {
-                byteArrayOutputStream.write(buffer, 0, length);
+        ObjectSummary known = keyIndex.get(key);
+        if (known != null && downloadParallelism > 1) {
+            ByteRange wanted = range == null
+                    ? new ByteRange(0, known.size() - 1)
+                    : ByteRange.resolve(range, known.size());
+            if (wanted != null && wanted.length() > parallelDownloadThreshold) {
+                ObjectContent content = parallelDownload(key, range, wanted, known.size());
+                if (content != null) {
+                    return content;
+                }
             }
+        }
 
-            byte[] result = byteArrayOutputStream.toByteArray();
-            logger.debug("Successfully downloaded file with key: {}, size: {} bytes", key, result.length);
+        logger.debug("Downloading file with key: {}, range: {}", key, range);
+        try {
+            // Get the object from the S3 bucket as InputStream
+            long invalidations = contentCache.invalidations();
+            ResponseInputStream<GetObjectResponse> s3ObjectInputStream = getObject(key,
+                    range == null ? null : HttpRange.toString(List.of(range)), null);
+            GetObjectResponse response = s3ObjectInputStream.response();
+            logger.debug("Opened file with key: {}, length: {} bytes, content-range: {}",
+                    key, response.contentLength(), response.contentRange());
+
+            if (range == null && contentCache.isCacheable(response.contentLength())) {
+                return cacheAndOpen(key, s3ObjectInputStream, null, invalidations);
+            }
 
-            return result;
+            ByteRange served = servedRange(response);
+            long size = served == null ? response.contentLength() : objectSize(response);
+            ObjectMetadata metadata = new ObjectMetadata(key, size, response.contentType(),
+                    response.eTag(), response.lastModified(), storedEncoding(response.contentEncoding()));
+            return new ObjectContent(metadata, s3ObjectInputStream, response.contentLength(), served);
+        } catch (S3Exception e) {
+            if (e.statusCode() == 416) {
+                throw new RangeNotSatisfiableException(key, headObject(key).size());
+            }
+            logger.error("Failed to download file with key {}: {}", key, e.getMessage(), e);
+            throw e;
         } catch (Exception e) {
             logger.error("Failed to download file with key {}: {}", key, e.getMessage(), e);
             throw e;
         }
     }
 
-    public void uploadFile(String key, byte[] fileContent, String contentType) {
-        requireInitialized();
-        logger.debug("Uploading file with key: {}, size: {} bytes, content-type: {}",
-                key, fileContent.length, contentType);
+    // Serves the key from the content cache when the entry is known to be current.
+    // The key index vouches for entries for free; without it, entries older than
+    // the revalidation interval cost one conditional GET, which either confirms the
+    // entry (304) or returns the new body in the same round trip.
+    private ObjectContent openCached(String key, HttpRange range) throws Exception {
+        ObjectContentCache.Entry entry = contentCache.get(key);
+        if (entry == null) {
+            return null;
+        }
+
+        String eTag = entry.metadata().eTag();
+        ObjectSummary indexed = keyIndex.isFresh() ? keyIndex.get(key) : null;
+        boolean current = indexed != null && eTag != null
+                ? eTag.equals(indexed.eTag())
+                : System.currentTimeMillis() - entry.validatedMillis() < cacheRevalidateAfterMs;
+        if (current) {
+            logger.debug("Serving key: {} from the content cache", key);
+            return openEntry(entry, range);
+        }
 
+        long invalidations = contentCache.invalidations();
         try {
-            // Create request
-            PutObjectRequest putObjectRequest = PutObjectRequest.builder()
+            ResponseInputStream<GetObjectResponse> changed = s3Client.getObject(GetObjectRequest.builder()
                     .bucket(bucketName)
                     .key(key)
-                    .contentType(contentType)
-                    .build();
+                    .ifNoneMatch(eTag)
+                    .build());
+            logger.debug("Cached content for key: {} is stale, replacing it", key);
+            contentCache.invalidate(key);
+            GetObjectResponse response = changed.response();
+            if (contentCache.isCacheable(response.contentLength())) {
+                return cacheAndOpen(key, changed, range, invalidations + 1);
+            }
+            // Overwritten with something too large to buffer: stream it as it is,
+            // or for a range drop it and let the caller read just the range
+            if (range == null) {
+                ObjectMetadata metadata = new ObjectMetadata(key, response.contentLength(), response.contentType(),
+                        response.eTag(), response.lastModified(), storedEncoding(response.contentEncoding()));
+                return new ObjectContent(metadata, changed, response.contentLength(), null);
+            }
+            changed.abort();
+            return null;
+        } catch (S3Exception e) {
+            if (e.statusCode() == 304) {
+                logger.debug("Cached content for key: {} revalidated", key);
+                contentCache.markValidated(key);
+                return openEntry(entry, range);
+            }
+            contentCache.invalidate(key);
+            if (e.statusCode() == 404) {
+                throw e;
+            }
+            // Anything else: forget the entry and let the caller take the normal path
+            logger.warn("Failed to revalidate cached content for key {}: {}", key, e.getMessage());
+            return null;
+        }
+    }
 
-            // Upload to S3
-            s3Client.putObject(putObjectRequest,
-                    RequestBody.fromInputStream(new ByteArrayInputStream(fileContent), fileContent.length));
+    // A disk entry can be evicted between the lookup and the open; the caller then
+    // reads the object from S3 as if it had never been cached
+    private ObjectContent openEntry(ObjectContentCache.Entry entry, HttpRange range) throws IOException {
+        try {
+            return entry.open(range);
+        } catch (NoSuchFileException e) {
+            logger.debug("Cache file for key: {} was evicted before it could be read", entry.metadata().key());
+            return null;
+        }
+    }
+
+    // Reads a small object whole, caches it and serves it from memory
+    private ObjectContent cacheAndOpen(String key, ResponseInputStream<GetObjectResponse> in, HttpRange range,
+                                       long invalidations) throws Exception {
+        GetObjectResponse response = in.response();
+        byte[] data;
+        try (in) {
+            data = in.readAllBytes();
+        }
+        ObjectMetadata metadata = new ObjectMetadata(key, data.length, response.contentType(),
+                response.eTag(), response.lastModified(), storedEncoding(response.contentEncoding()));
+        contentCache.put(metadata, data, invalidations);
+        return new ObjectContentCache.Entry(metadata, data, null, 0).open(range);
+    }
+
+    // Opens the first part synchronously for its metadata, then lets
+    // ParallelRangeInputStream fetch the rest. Every part is pinned to the first
+    // part's ETag, so an overwrite mid-download fails the read instead of splicing
+    // two versions. Returns null when the index was stale about the object size,
+    // so the caller falls back to a single stream.
+    private ObjectContent parallelDownload(String key, HttpRange range, ByteRange wanted, long indexedSize)
+            throws Exception {
+        ByteRange first = new ByteRange(wanted.start(), Math.min(wanted.end(), wanted.start() + downloadPartSize - 1));
+        ResponseInputStream<GetObjectResponse> firstStream;
+        try {
+            firstStream = getObject(key, first.toRangeHeader(), null);
+        } catch (S3Exception e) {
+            if (e.statusCode() == 416) {
+                return null;
+            }
+            logger.error("Failed to download file with key {}: {}", key, e.getMessage(), e);
+            throw e;
+        }
+
+        GetObjectResponse response = firstStream.response();
+        long size = objectSize(response);
+        if (size != indexedSize) {
+            logger.debug("Key index size {} for key {} is stale (object is {} bytes), using a single stream",
+                    indexedSize, key, size);
+            firstStream.abort();
+            return null;
+        }
+
+        String eTag = response.eTag();
+        logger.debug("Downloading file with key: {}, range: {} in {} byte parts, {} at a time",
+                key, wanted.toRangeHeader(), downloadPartSize, downloadParallelism);
+        ParallelRangeInputStream stream = new ParallelRangeInputStream(
+                part -> getObject(key, part.toRangeHeader(), eTag), firstStream, wanted,
+                downloadPartSize, downloadParallelism, transferExecutor, readAheadPermits);
+        ObjectMetadata metadata = new ObjectMetadata(key, size, response.contentType(), eTag,
+                response.lastModified(), storedEncoding(response.contentEncoding()));
+        return new ObjectContent(metadata, stream, wanted.length(), range == null ? null : wanted);
+    }
+
+    // The Content-Encoding an object was stored with. aws-chunked describes how the
+    // upload was signed, not the body, and identity is no coding at all.
+    private static String storedEncoding(String contentEncoding) {
+        if (contentEncoding == null || contentEncoding.isBlank()) {
+            return null;
+        }
+        List<String> codings = new ArrayList<>();
+        for (String coding : contentEncoding.split(",")) {
+            coding = coding.trim();
+            if (!coding.isEmpty() && !coding.equalsIgnoreCase("aws-chunked") && !coding.equalsIgnoreCase("identity")) {
+                codings.add(coding);
+            }
+        }
+        return codings.isEmpty() ? null : String.join(", ", codings);
+    }
+
+    private ResponseInputStream<GetObjectResponse> getObject(String key, String range, String ifMatch) {
+        return s3Client.getObject(GetObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .range(range)
+                .ifMatch(ifMatch)
+                .build());
+    }
+
+    // S3 answers a satisfiable range with Content-Range: bytes <start>-<end>/<size>
+    private static ByteRange servedRange(GetObjectResponse response) {
+        String contentRange = response.contentRange();
+        if (contentRange == null || !contentRange.startsWith("bytes ")) {
+            return null;
+        }
+        int dash = contentRange.indexOf('-');
+        int slash = contentRange.indexOf('/');
+        return new ByteRange(Long.parseLong(contentRange.substring(6, dash)),
+                Long.parseLong(contentRange.substring(dash + 1, slash)));
+    }
+
+    private static long objectSize(GetObjectResponse response) {
+        String contentRange = response.contentRange();
+        if (contentRange == null || !contentRange.startsWith("bytes ")) {
+            return response.contentLength();
+        }
+        return Long.parseLong(contentRange.substring(contentRange.indexOf('/') + 1));
+    }
+
+    @Override
+    public void uploadFile(String key, byte[] fileContent, String contentType) {
+        uploadFile(key, new ByteArrayInputStream(fileContent), fileContent.length, contentType);
+    }
+
+    // Streams an upload into S3. Small bodies go out as a single PUT; anything over
+    // the multipart threshold (or of unknown length that turns out to be) is cut into
+    // parts that upload concurrently. At most `parallelism` part buffers exist per
+    // upload, so memory stays bounded no matter how large the body is.
+    @Override
+    public void uploadFile(String key, InputStream in, long size, String contentType) {
+        requireInitialized();
+        logger.debug("Uploading file with key: {}, size: {} bytes, content-type: {}", key, size, contentType);
+
+        try {
+            // Buffered rather than streamed: a request stream can only be read once, so
+            // the SDK could not replay it when it retries a failed attempt
+            if (size >= 0 && size <= multipartThreshold) {
+                byte[] body = in.readNBytes((int) size);
+                if (body.length < size) {
+                    throw new IOException("Upload body ended after " + body.length + " of " + size + " bytes");
+                }
+                putObject(key, RequestBody.fromBytes(body), size, contentType);
+                return;
+            }
 
-            logger.debug("Successfully uploaded file with key: {}", key);
+            // Unknown length: the first part decides whether this is really a large upload
+            byte[] first = new byte[partSize];
+            int firstLength = in.readNBytes(first, 0, partSize);
+            if (firstLength < partSize) {
+                putObject(key, RequestBody.fromBytes(Arrays.copyOf(first, firstLength)), firstLength, contentType);
+                return;
+            }
+            multipartUpload(key, first, in, contentType);
         } catch (Exception e) {
             logger.error("Failed to upload file with key {}: {}", key, e.getMessage(), e);
             throw new RuntimeException("Failed to upload file", e);
         }
     }
 
+    private void putObject(String key, RequestBody body, long size, String contentType) {
+        // Create request
+        PutObjectRequest putObjectRequest = PutObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .contentType(contentType)
+                .build();
+
+        // Upload to S3
+        var response = s3Client.putObject(putObjectRequest, body);
+        contentCache.invalidate(key);
+        keyIndex.put(new ObjectSummary(key, size, Instant.now(), response.eTag()));
+
+        logger.debug("Successfully uploaded file with key: {}", key);
+    }
+
+    private void multipartUpload(String key, byte[] firstPart, InputStream in, String contentType) throws Exception {
+        String uploadId = s3Client.createMultipartUpload(CreateMultipartUploadRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .contentType(contentType)
+                .build()).uploadId();
+        logger.debug("Started multipart upload for key: {}, uploadId: {}", key, uploadId);
+
+        // Part buffers circulate through this queue; taking one blocks while all are in flight
+        BlockingQueue<byte[]> buffers = new ArrayBlockingQueue<>(uploadParallelism);
+        int allocated = 1;
+        List<Future<CompletedPart>> parts = new ArrayList<>();
+        long total = 0;
+
+        try {
+            byte[] buffer = firstPart;
+            int length = partSize;
+            int partNumber = 1;
+            while (true) {
+                parts.add(submitPart(key, uploadId, partNumber, buffer, length, buffers));
+                total += length;
+
+                if (buffers.isEmpty() && allocated < uploadParallelism) {
+                    buffer = new byte[partSize];
+                    allocated++;
+                } else {
+                    buffer = buffers.take();
+                }
+                length = in.readNBytes(buffer, 0, partSize);
+                if (length == 0) {
+                    buffers.offer(buffer);
+                    break;
+                }
+                partNumber++;
+                failFast(parts);
+            }
+
+            List<CompletedPart> completed = new ArrayList<>(parts.size());
+            for (Future<CompletedPart> part : parts) {
+                completed.add(part.get());
+            }
+
+            var response = s3Client.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                    .bucket(bucketName)
+                    .key(key)
+                    .uploadId(uploadId)
+                    .multipartUpload(CompletedMultipartUpload.builder().parts(completed).build())
+                    .build());
+            contentCache.invalidate(key);
+            keyIndex.put(new ObjectSummary(key, total, Instant.now(), response.eTag()));
+            logger.debug("Completed multipart upload for key: {}, {} parts, {} bytes", key, completed.size(), total);
+        } catch (Exception e) {
+            for (Future<CompletedPart> part : parts) {
+                part.cancel(true);
+            }
+            try {
+                s3Client.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                        .bucket(bucketName)
+                        .key(key)
+                        .uploadId(uploadId)
+                        .build());
+                logger.warn("Aborted multipart upload for key: {}, uploadId: {}", key, uploadId);
+            } catch (Exception abortError) {
+                logger.error("Failed to abort multipart upload {} for key {}: {}", uploadId, key,
+                        abortError.getMessage(), abortError);
+            }
+            throw e;
+        }
+    }
+
+    private Future<CompletedPart> submitPart(String key, String uploadId, int partNumber, byte[] buffer, int length,
+                                             BlockingQueue<byte[]> buffers) {
+        return transferExecutor.submit(() -> {
+            try {
+                // The provider hands out a fresh view of the buffer, so SDK retries re-read it without a copy
+                var response = s3Client.uploadPart(UploadPartRequest.builder()
+                                .bucket(bucketName)
+                                .key(key)
+                                .uploadId(uploadId)
+                                .partNumber(partNumber)
+                                .contentLength((long) length)
+                                .build(),
+                        RequestBody.fromContentProvider(() -> new ByteArrayInputStream(buffer, 0, length),
+                                length, "application/octet-stream"));
+                logger.trace("Uploaded part {} of key: {} ({} bytes)", partNumber, key, length);
+                return CompletedPart.builder().partNumber(partNumber).eTag(response.eTag()).build();
+            } finally {
+                buffers.offer(buffer);
+            }
+        });
+    }
+
+    // Stops reading the body as soon as any part has failed
+    private static void failFast(List<Future<CompletedPart>> parts) throws Exception {
+        for (Future<CompletedPart> part : parts) {
+            if (part.isDone()) {
+                part.get();
+            }
+        }
+    }
+
+    @Override
     public void deleteFile(String key) {
         requireInitialized();
         logger.debug("Deleting file with key: {}", key);
@@ -170,6 +724,8 @@ public class S3Service {
 
             // Delete from S3
             s3Client.deleteObject(deleteObjectRequest);
+            contentCache.invalidate(key);
+            keyIndex.remove(key);
 
             logger.debug("Successfully deleted file with key: {}", key);
         } catch (Exception e) {
@@ -177,4 +733,97 @@ public class S3Service {
             throw new RuntimeException("Failed to delete file", e);
         }
     }
+
+    // Deletes the keys in DeleteObjects batches of up to 1000, several batches in flight at once
+    @Override
+    public BatchDeleteReport deleteFiles(List<String> keys) {
+        requireInitialized();
+        logger.debug("Deleting {} keys in batches", keys.size());
+        return runDeleteBatches(batchConsumer -> {
+            for (int i = 0; i < keys.size(); i += MAX_DELETE_BATCH) {
+                batchConsumer.accept(keys.subList(i, Math.min(keys.size(), i + MAX_DELETE_BATCH)));
+            }
+        });
+    }
+
+    // Recursive folder delete: each listing page under the prefix becomes one batch,
+    // sent while the listing carries on
+    @Override
+    public BatchDeleteReport deleteByPrefix(String prefix) {
+        requireInitialized();
+        logger.debug("Deleting every key under prefix: {}", prefix);
+        return runDeleteBatches(batchConsumer -> listBucketPages(prefix, batchConsumer));
+    }
+
+    private BatchDeleteReport runDeleteBatches(Consumer<Consumer<List<String>>> batches) {
+        Semaphore permits = new Semaphore(Math.max(1, deleteParallelism));
+        List<Future<BatchDeleteReport>> pending = new ArrayList<>();
+        RuntimeException listingError = null;
+        try {
+            batches.accept(batch -> {
+                if (batch.isEmpty()) {
+                    return;
+                }
+                List<String> keys = List.copyOf(batch);
+                permits.acquireUninterruptibly();
+                pending.add(transferExecutor.submit(() -> {
+                    try {
+                        return deleteBatch(keys);
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            });
+        } catch (RuntimeException e) {
+            listingError = e;
+        }
+
+        // Batches already sent still land in the key index, even if the listing failed
+        BatchDeleteReport report = new BatchDeleteReport();
+        for (Future<BatchDeleteReport> batch : pending) {
+            try {
+                report.addAll(batch.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while deleting files", e);
+            } catch (ExecutionException e) {
+                throw new RuntimeException("Failed to delete files", e.getCause());
+            }
+        }
+        if (listingError != null) {
+            throw listingError;
+        }
+        logger.debug("Batch delete finished: {} deleted, {} failed", report.deleted().size(), report.failed().size());
+        return report;
+    }
+
+    private BatchDeleteReport deleteBatch(List<String> keys) {
+        BatchDeleteReport report = new BatchDeleteReport();
+        try {
+            List<ObjectIdentifier> objects = new ArrayList<>(keys.size());
+            for (String key : keys) {
+                objects.add(ObjectIdentifier.builder().key(key).build());
+            }
+            var response = s3Client.deleteObjects(DeleteObjectsRequest.builder()
+                    .bucket(bucketName)
+                    .delete(Delete.builder().objects(objects).build())
+                    .build());
+
+            for (DeletedObject deleted : response.deleted()) {
+                contentCache.invalidate(deleted.key());
+                keyIndex.remove(deleted.key());
+                report.deleted().add(deleted.key());
+            }
+            for (S3Error error : response.errors()) {
+                report.failed().add(new BatchDeleteReport.Failure(error.key(), error.code(), error.message()));
+            }
+        } catch (Exception e) {
+            logger.error("Failed to delete batch of {} keys starting at {}: {}", keys.size(), keys.get(0),
+                    e.getMessage(), e);
+            for (String key : keys) {
+                report.failed().add(new BatchDeleteReport.Failure(key, "RequestFailed", e.getMessage()));
+            }
+        }
+        return report;
+    }
 }
@@ -0,0 +1,50 @@
+package com.example.bucketbrowser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.springframework.http.HttpRange;
+
+// Where the objects live. The controller, the key index and the health check only
+// talk to this; StorageConfig picks the implementation from bucket.backend. Every
+// implementation keeps the key index up to date with its own writes and follows
+// S3 semantics: keys sort as strings, listings page like ListObjectsV2, and
+// deleting a missing key succeeds.
+public interface StorageBackend {
+
+    // Short name for logs, /api/config and /api/status: s3, memory or filesystem
+    String name();
+
+    // Throws when the backend cannot currently be reached
+    void checkHealth() throws Exception;
+
+    // Every key under the prefix, in sorted pages
+    void listBucketPages(String prefix, Consumer<List<String>> pageConsumer);
+
+    // Same, with the metadata the backend lists for free
+    void listObjectSummaries(String prefix, Consumer<List<ObjectSummary>> pageConsumer);
+
+    ListingPage listPage(String prefix, String delimiter, String cursor, int pageSize);
+
+    ObjectMetadata headObject(String key) throws Exception;
+
+    // The whole object when range is null. The caller owns the returned content.
+    ObjectContent downloadFile(String key, HttpRange range) throws Exception;
+
+    default ObjectContent downloadFile(String key) throws Exception {
+        return downloadFile(key, null);
+    }
+
+    // size is -1 when the length is not known up front
+    void uploadFile(String key, InputStream in, long size, String contentType) throws IOException;
+
+    void uploadFile(String key, byte[] content, String contentType);
+
+    void deleteFile(String key);
+
+    BatchDeleteReport deleteFiles(List<String> keys);
+
+    BatchDeleteReport deleteByPrefix(String prefix);
+}
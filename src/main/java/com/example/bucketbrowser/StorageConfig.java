@@ -0,0 +1,53 @@
+package com.example.bucketbrowser;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+@Configuration
+public class StorageConfig {
+    private static final Logger logger = LoggerFactory.getLogger(StorageConfig.class);
+
+    // s3, memory or filesystem. Unset keeps the original behaviour: S3 when an
+    // endpoint is configured, the in-memory demo store otherwise.
+    @Value("${bucket.backend:}")
+    private String backend;
+
+    @Value("${bucket.filesystem.root:}")
+    private String filesystemRoot;
+
+    // The backend everything else is wired to. S3Service and DemoService stay beans
+    // of their own, so this one is marked primary.
+    @Bean
+    @Primary
+    public StorageBackend storageBackend(S3Service s3Service, DemoService demoService, KeyIndex keyIndex)
+            throws IOException {
+        String selected = backend == null || backend.isEmpty()
+                ? (s3Service.isInitialized() ? "s3" : "memory")
+                : backend;
+        StorageBackend storage = switch (selected) {
+            case "s3" -> {
+                if (!s3Service.isInitialized()) {
+                    throw new IllegalStateException("bucket.backend=s3 needs bucket.host and the bucket credentials");
+                }
+                yield s3Service;
+            }
+            case "memory" -> demoService;
+            case "filesystem" -> {
+                if (filesystemRoot == null || filesystemRoot.isEmpty()) {
+                    throw new IllegalStateException("bucket.backend=filesystem needs bucket.filesystem.root");
+                }
+                yield new FileSystemBackend(Path.of(filesystemRoot), keyIndex);
+            }
+            default -> throw new IllegalStateException("Unknown bucket.backend: " + selected);
+        };
+        logger.info("Storage backend: {}", storage.name());
+        return storage;
+    }
+}
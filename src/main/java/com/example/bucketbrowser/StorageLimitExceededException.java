@@ -0,0 +1,10 @@
+package com.example.bucketbrowser;
+
+// Thrown when a write would take a size-limited store past one of its limits
+public class StorageLimitExceededException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public StorageLimitExceededException(String key, long size, String limit) {
+        super("Cannot store " + key + " (" + size + " bytes): it would exceed " + limit);
+    }
+}
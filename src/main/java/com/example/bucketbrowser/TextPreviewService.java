@@ -0,0 +1,453 @@
+package com.example.bucketbrowser;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpRange;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+
+// Windows of lines from text objects of any size, read with ranged GETs so only the
+// bytes around the window are fetched. Each object version gets a sparse line index:
+// the byte offset of every index-interval'th line, built lazily as far as anyone
+// has paged or jumped, and kept for later requests. Jumping to line N scans the
+// object once up to N on the server, and concurrent jumps into the same object wait
+// for that one scan rather than each running their own; after that any window
+// starts at most one interval of lines before the requested line. Indexes are pinned to the ETag they
+// were built from and every ranged read checks it, so a changed object is never
+// read through offsets of its previous version.
+@Service
+public class TextPreviewService implements KeyIndex.Listener {
+    private static final Logger logger = LoggerFactory.getLogger(TextPreviewService.class);
+
+    // The first ranged read of a window is small, later ones double up to scan-chunk-size
+    private static final int FIRST_CHUNK = 64 * 1024;
+
+    public record Window(String key, String eTag, long size, long from, List<String> lines, Long nextLine,
+                         Long totalLines, boolean truncated, String header) {
+    }
+
+    // Thrown when the object changes between the ranged reads of one request
+    private static class VersionChangedException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        VersionChangedException(String key) {
+            super("Object " + key + " changed while it was being read");
+        }
+    }
+
+    @Value("${bucket.preview.max-lines:2000}")
+    private int maxLines;
+
+    @Value("${bucket.preview.max-line-length:4096}")
+    private int maxLineLength;
+
+    @Value("${bucket.preview.max-bytes:1048576}")
+    private int maxBytes;
+
+    @Value("${bucket.preview.index-interval:1000}")
+    private int interval;
+
+    @Value("${bucket.preview.index-cache-entries:256}")
+    private int cacheEntries;
+
+    @Value("${bucket.preview.scan-chunk-size:8388608}")
+    private long scanChunkSize;
+
+    private final StorageBackend storage;
+    private final KeyIndex keyIndex;
+
+    private final LinkedHashMap<String, LineIndex> indexes = new LinkedHashMap<>(64, 0.75f, true);
+
+    @Autowired
+    public TextPreviewService(StorageBackend storage, KeyIndex keyIndex) {
+        this.storage = storage;
+        this.keyIndex = keyIndex;
+    }
+
+    @PostConstruct
+    public void init() {
+        keyIndex.addListener(this);
+    }
+
+    public int maxLines() {
+        return maxLines;
+    }
+
+    // Lines from..from+count-1 (1-based) of the object as it is now. Past the last
+    // line the window is empty. For CSV the header row comes along with every window
+    // that does not start at it.
+    public Window read(String key, ObjectMetadata current, long from, int count) throws IOException {
+        try {
+            return readWindow(key, current, from, count);
+        } catch (VersionChangedException e) {
+            // Overwritten between the validators and the reads: once more against the new version
+            logger.debug("{}, retrying", e.getMessage());
+            ObjectMetadata now;
+            try {
+                now = storage.headObject(key);
+            } catch (Exception headFailure) {
+                throw new IOException("Could not re-read metadata of " + key, headFailure);
+            }
+            return readWindow(key, now, from, count);
+        }
+    }
+
+    private Window readWindow(String key, ObjectMetadata current, long from, int count) throws IOException {
+        LineIndex index = indexFor(key, current);
+        count = Math.min(count, maxLines);
+
+        // Without an indexed start for the line, scan up to it first
+        if (from > index.knownLine() && !index.isComplete()) {
+            scan(key, index, from);
+        }
+        if (index.isComplete() && from > index.totalLines()) {
+            return new Window(key, index.eTag, index.size, from, List.of(), null, index.totalLines(), false,
+                    header(key, index, from));
+        }
+
+        long[] start = index.checkpointBefore(from);
+        List<String> lines = new ArrayList<>(count);
+        boolean truncated = false;
+        Long nextLine;
+        try (LineCursor cursor = new LineCursor(new RangeReader(key, index.eTag, index.size, start[1], FIRST_CHUNK),
+                start[0], start[1])) {
+            while (cursor.line < from && cursor.next(null, 0)) {
+                index.advanced(cursor.line, cursor.offset);
+            }
+            int bytes = 0;
+            ByteArrayOutputStream line = new ByteArrayOutputStream(256);
+            while (lines.size() < count && bytes < maxBytes) {
+                line.reset();
+                if (!cursor.next(line, maxLineLength)) {
+                    break;
+                }
+                index.advanced(cursor.line, cursor.offset);
+                truncated |= cursor.lastTruncated;
+                bytes += line.size();
+                lines.add(decode(line));
+            }
+            if (cursor.atEnd()) {
+                index.complete(cursor.line - 1);
+                nextLine = null;
+            } else {
+                nextLine = cursor.line;
+            }
+        }
+        logger.debug("Preview of key: {} lines {}-{} ({} lines indexed{})", key, from, from + lines.size() - 1,
+                index.knownLine() - 1, index.isComplete() ? ", complete" : "");
+        return new Window(key, index.eTag, index.size, from, lines, nextLine,
+                index.isComplete() ? index.totalLines() : null, truncated, header(key, index, from));
+    }
+
+    // Extends the index from where it ends until line target starts or the object does.
+    // One scan per index at a time: a caller that waited behind another picks up from
+    // where that one stopped, and usually finds its line already indexed.
+    private void scan(String key, LineIndex index, long target) throws IOException {
+        synchronized (index.scanLock) {
+            if (target <= index.knownLine() || index.isComplete()) {
+                return;
+            }
+            long[] start = index.end();
+            long started = System.nanoTime();
+            try (LineCursor cursor = new LineCursor(new RangeReader(key, index.eTag, index.size, start[1],
+                    scanChunkSize), start[0], start[1])) {
+                while (cursor.line < target && cursor.next(null, 0)) {
+                    index.advanced(cursor.line, cursor.offset);
+                }
+                if (cursor.atEnd()) {
+                    index.complete(cursor.line - 1);
+                }
+                logger.debug("Indexed key: {} from byte {} to {} in {} ms", key, start[1], cursor.offset,
+                        (System.nanoTime() - started) / 1_000_000);
+            }
+        }
+    }
+
+    private String header(String key, LineIndex index, long from) throws IOException {
+        if (from == 1 || !BucketController.determineContentType(key).equals("text/csv") || index.size == 0) {
+            return null;
+        }
+        String header = index.header();
+        if (header == null) {
+            try (LineCursor cursor = new LineCursor(new RangeReader(key, index.eTag, index.size, 0, FIRST_CHUNK), 1, 0)) {
+                ByteArrayOutputStream line = new ByteArrayOutputStream(256);
+                header = cursor.next(line, maxLineLength) ? decode(line) : "";
+            }
+            index.header(header);
+        }
+        return header;
+    }
+
+    private static String decode(ByteArrayOutputStream line) {
+        int length = line.size();
+        byte[] bytes = line.toByteArray();
+        if (length > 0 && bytes[length - 1] == '\r') {
+            length--;
+        }
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private synchronized LineIndex indexFor(String key, ObjectMetadata current) {
+        LineIndex index = indexes.get(key);
+        if (index == null || current.eTag() == null || !current.eTag().equals(index.eTag)) {
+            index = new LineIndex(current.eTag(), current.size(), interval);
+            indexes.put(key, index);
+            Iterator<Map.Entry<String, LineIndex>> eldest = indexes.entrySet().iterator();
+            while (indexes.size() > cacheEntries && eldest.hasNext()) {
+                eldest.next();
+                eldest.remove();
+            }
+        }
+        return index;
+    }
+
+    @Override
+    public synchronized void keyChanged(String key, ObjectSummary previous, ObjectSummary current) {
+        indexes.remove(key);
+    }
+
+    public synchronized Map<String, Object> stats() {
+        long checkpoints = 0;
+        for (LineIndex index : indexes.values()) {
+            checkpoints += index.checkpointCount();
+        }
+        return Map.of("indexes", indexes.size(), "checkpoints", checkpoints);
+    }
+
+    // Offsets of lines 1, 1 + interval, 1 + 2 * interval, ... of one object version,
+    // plus the furthest line whose start is known. Grows only contiguously, so two
+    // requests scanning the same object at once cannot leave gaps.
+    private static final class LineIndex {
+        final String eTag;
+        final long size;
+        final int interval;
+        // Held for the whole of a scan; the index itself only guards its fields
+        final Object scanLock = new Object();
+        private long[] checkpoints = new long[16];
+        private int checkpointCount = 1;
+        private long knownLine = 1;
+        private long knownOffset = 0;
+        private long totalLines = -1;
+        private String header;
+
+        LineIndex(String eTag, long size, int interval) {
+            this.eTag = eTag;
+            this.size = size;
+            this.interval = interval;
+        }
+
+        synchronized long knownLine() {
+            return knownLine;
+        }
+
+        synchronized boolean isComplete() {
+            return totalLines >= 0;
+        }
+
+        synchronized long totalLines() {
+            return totalLines;
+        }
+
+        synchronized int checkpointCount() {
+            return checkpointCount;
+        }
+
+        // {line, offset} where the index ends
+        synchronized long[] end() {
+            return new long[] {knownLine, knownOffset};
+        }
+
+        // {line, offset} of the last checkpoint at or before the line
+        synchronized long[] checkpointBefore(long line) {
+            int slot = (int) Math.min((line - 1) / interval, checkpointCount - 1);
+            return new long[] {(long) slot * interval + 1, checkpoints[slot]};
+        }
+
+        // Line `line` starts at `offset`
+        synchronized void advanced(long line, long offset) {
+            if (line != knownLine + 1) {
+                return;
+            }
+            knownLine = line;
+            knownOffset = offset;
+            if ((line - 1) % interval == 0) {
+                if (checkpointCount == checkpoints.length) {
+                    checkpoints = Arrays.copyOf(checkpoints, checkpointCount * 2);
+                }
+                checkpoints[checkpointCount++] = offset;
+            }
+        }
+
+        synchronized void complete(long lines) {
+            totalLines = lines;
+        }
+
+        synchronized String header() {
+            return header;
+        }
+
+        synchronized void header(String line) {
+            header = line;
+        }
+    }
+
+    // Reads lines from a position in the object. line is the number of the line that
+    // starts at offset, the next one to be read.
+    private static final class LineCursor implements AutoCloseable {
+        private final RangeReader in;
+        private final byte[] buffer = TransferBuffers.acquire();
+        private int position;
+        private int limit;
+        private long bufferStart;
+        long line;
+        long offset;
+        boolean lastTruncated;
+
+        LineCursor(RangeReader in, long line, long offset) {
+            this.in = in;
+            this.line = line;
+            this.offset = offset;
+            this.bufferStart = offset;
+        }
+
+        // Known from the object size, without reading ahead
+        boolean atEnd() {
+            return position == limit && in.exhausted();
+        }
+
+        // Moves past one line, copying up to maxLength of its bytes into keep when keep
+        // is not null. Returns false when there is no line left.
+        boolean next(ByteArrayOutputStream keep, int maxLength) throws IOException {
+            if (position == limit && !fill()) {
+                return false;
+            }
+            lastTruncated = false;
+            while (true) {
+                int newline = -1;
+                for (int i = position; i < limit; i++) {
+                    if (buffer[i] == '\n') {
+                        newline = i;
+                        break;
+                    }
+                }
+                int end = newline >= 0 ? newline : limit;
+                if (keep != null) {
+                    int room = maxLength - keep.size();
+                    keep.write(buffer, position, Math.min(room, end - position));
+                    lastTruncated |= end - position > room;
+                }
+                position = newline >= 0 ? newline + 1 : limit;
+                offset = bufferStart + position;
+                if (newline >= 0 || !fill()) {
+                    // A last line without a trailing newline ends at the end of the object
+                    line++;
+                    return true;
+                }
+            }
+        }
+
+        private boolean fill() throws IOException {
+            bufferStart += limit;
+            position = 0;
+            limit = 0;
+            int read = in.read(buffer, 0, buffer.length);
+            if (read <= 0) {
+                return false;
+            }
+            limit = read;
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            TransferBuffers.release(buffer);
+            in.close();
+        }
+    }
+
+    // The object from a position onwards, as a series of bounded ranged reads that
+    // start small and double. Every read must come back with the expected ETag.
+    private final class RangeReader extends InputStream {
+        private final String key;
+        private final String eTag;
+        private final long size;
+        private long position;
+        private long chunk;
+        private ObjectContent current;
+
+        RangeReader(String key, String eTag, long size, long position, long firstChunk) {
+            this.key = key;
+            this.eTag = eTag;
+            this.size = size;
+            this.position = position;
+            this.chunk = Math.min(firstChunk, scanChunkSize);
+        }
+
+        boolean exhausted() {
+            return position >= size;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            while (position < size) {
+                if (current == null) {
+                    open();
+                }
+                int read = current.stream().read(b, off, (int) Math.min(len, size - position));
+                if (read > 0) {
+                    position += read;
+                    return read;
+                }
+                current.close();
+                current = null;
+            }
+            return -1;
+        }
+
+        private void open() throws IOException {
+            long end = Math.min(size, position + chunk) - 1;
+            try {
+                current = storage.downloadFile(key, HttpRange.createByteRange(position, end));
+            } catch (IOException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IOException("Failed to read bytes " + position + "-" + end + " of " + key, e);
+            }
+            if (eTag != null && !eTag.equals(current.metadata().eTag())) {
+                current.abort();
+                current = null;
+                throw new VersionChangedException(key);
+            }
+            chunk = Math.min(chunk * 2, scanChunkSize);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (current != null) {
+                // Anything left of the range is not needed
+                current.abort();
+                current = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,576 @@
+package com.example.bucketbrowser;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.imageio.IIOException;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+// Downscaled renditions of images at a fixed set of sizes (longest side, in pixels).
+// Rendering runs on a small pool with a bounded queue, so a folder full of photos
+// cannot take every CPU or queue up unbounded work; past that, callers are turned
+// away. Finished renditions are kept in memory and, optionally, written back under
+// a hidden prefix in the bucket so they survive restarts. Every rendition is pinned
+// to the ETag of the original it was made from, so a changed original is never
+// answered with an old rendition; invalidation only frees the space.
+@Service
+public class ThumbnailService implements KeyIndex.Listener, MeterBinder {
+    private static final Logger logger = LoggerFactory.getLogger(ThumbnailService.class);
+
+    // Rough per-entry overhead on top of the body: key, ETag, map node
+    private static final int ENTRY_OVERHEAD = 256;
+
+    // Originals known not to render, by key and ETag; only the reason is kept
+    private static final int MAX_UNRENDERABLE = 4096;
+
+    public record Rendition(String sourceETag, byte[] data, String contentType) {
+    }
+
+    private record RenditionKey(String key, int size) {
+    }
+
+    private record Unrenderable(String eTag, String reason) {
+    }
+
+    @Value("${bucket.thumbnail.enabled:true}")
+    private boolean enabled;
+
+    @Value("${bucket.thumbnail.sizes:128,1024}")
+    private List<Integer> sizes;
+
+    @Value("${bucket.thumbnail.threads:2}")
+    private int threads;
+
+    @Value("${bucket.thumbnail.queue:64}")
+    private int queueSize;
+
+    @Value("${bucket.thumbnail.cache-size:33554432}")
+    private long capacity;
+
+    @Value("${bucket.thumbnail.max-source-size:67108864}")
+    private long maxSourceSize;
+
+    @Value("${bucket.thumbnail.max-pixels:100000000}")
+    private long maxPixels;
+
+    @Value("${bucket.thumbnail.timeout-ms:30000}")
+    private long timeoutMs;
+
+    @Value("${bucket.thumbnail.quality:0.8}")
+    private float quality;
+
+    @Value("${bucket.thumbnail.write-back:false}")
+    private boolean writeBack;
+
+    @Value("${bucket.thumbnail.prefix:.thumbnails/}")
+    private String prefix;
+
+    @Value("${app.readonly.mode:false}")
+    private boolean readOnlyMode;
+
+    private final StorageBackend storage;
+    private final KeyIndex keyIndex;
+
+    private ThreadPoolExecutor workers;
+    // Removing stale written-back renditions is cheap and must not be dropped, so it
+    // has a thread and an unbounded queue of its own
+    private ExecutorService cleaner;
+
+    private final LinkedHashMap<RenditionKey, Rendition> cache = new LinkedHashMap<>(256, 0.75f, true);
+    private long cacheBytes = 0;
+    private final LinkedHashMap<String, Unrenderable> unrenderable = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Unrenderable> eldest) {
+            return size() > MAX_UNRENDERABLE;
+        }
+    };
+    private final Map<String, CompletableFuture<Rendition>> inFlight = new ConcurrentHashMap<>();
+    private final Set<String> pendingCleanups = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong renders = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    @Autowired
+    public ThumbnailService(StorageBackend storage, KeyIndex keyIndex) {
+        this.storage = storage;
+        this.keyIndex = keyIndex;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            logger.info("Thumbnails disabled");
+            return;
+        }
+        if (!prefix.endsWith("/")) {
+            prefix = prefix + "/";
+        }
+        sizes = sizes.stream().sorted().distinct().toList();
+        // Sources are read once, front to back; no point spooling them to temp files
+        ImageIO.setUseCache(false);
+
+        AtomicInteger counter = new AtomicInteger();
+        workers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.SECONDS, new ArrayBlockingQueue<>(queueSize),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "thumbnail-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        cleaner = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "thumbnail-cleanup");
+            thread.setDaemon(true);
+            return thread;
+        });
+        keyIndex.addListener(this);
+        if (writeBack && readOnlyMode) {
+            logger.info("Read-only mode: thumbnails are not written back to the bucket");
+        }
+        logger.info("Thumbnails: sizes {}, {} threads, {} queued, {} bytes cached, write-back: {}",
+                sizes, threads, queueSize, capacity, isWritingBack() ? prefix : "off");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (workers != null) {
+            workers.shutdownNow();
+            cleaner.shutdown();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public List<Integer> sizes() {
+        return sizes;
+    }
+
+    public String prefix() {
+        return prefix;
+    }
+
+    public boolean isRendition(String key) {
+        return key.startsWith(prefix);
+    }
+
+    // Strong validator of one rendition: it changes with the original and with the size
+    public static String eTag(String sourceETag, int size) {
+        return "\"" + token(sourceETag) + "-" + size + "\"";
+    }
+
+    // The rendition of the current version of the original, from memory, from the
+    // bucket or freshly rendered. Concurrent requests for the same rendition share
+    // one render. Throws RejectedExecutionException when the render queue is full and
+    // TimeoutException when the render takes longer than the timeout; it still runs
+    // on, so a retry finds the rendition cached.
+    public Rendition get(String key, ObjectMetadata source, int size) throws Exception {
+        if (source.size() > maxSourceSize) {
+            throw new UnrenderableImageException(key, "larger than " + maxSourceSize + " bytes");
+        }
+        String eTag = source.eTag();
+        String reason = knownUnrenderable(key, eTag);
+        if (reason != null) {
+            throw new UnrenderableImageException(key, reason);
+        }
+        Rendition cached = cached(key, size, eTag);
+        if (cached != null) {
+            return cached;
+        }
+
+        String id = key + "\n" + size + "\n" + eTag;
+        CompletableFuture<Rendition> created = new CompletableFuture<>();
+        CompletableFuture<Rendition> running = inFlight.putIfAbsent(id, created);
+        if (running == null) {
+            running = created;
+            try {
+                workers.execute(() -> {
+                    try {
+                        created.complete(load(key, eTag, size));
+                    } catch (Throwable e) {
+                        created.completeExceptionally(e);
+                    } finally {
+                        inFlight.remove(id, created);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                rejected.incrementAndGet();
+                inFlight.remove(id, created);
+                created.completeExceptionally(e);
+            }
+        }
+        try {
+            return running.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            logger.warn("{}px rendition of key: {} not ready after {} ms", size, key, timeoutMs);
+            throw e;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private Rendition load(String key, String eTag, int size) throws Exception {
+        String stored = eTag != null && isWritingBack() && isImageKey(key) ? storedKey(key, size, eTag) : null;
+        if (stored != null) {
+            Rendition found = readStored(stored, eTag);
+            if (found != null) {
+                logger.debug("Loaded {}px rendition of key: {} from {}", size, key, stored);
+                put(key, size, found);
+                return found;
+            }
+        }
+
+        long started = System.nanoTime();
+        Rendition rendition = render(key, size);
+        renders.incrementAndGet();
+        logger.debug("Rendered {}px rendition of key: {} ({} bytes) in {} ms", size, key, rendition.data().length,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        put(key, size, rendition);
+        if (stored != null && rendition.sourceETag() != null) {
+            String target = storedKey(key, size, rendition.sourceETag());
+            try {
+                storage.uploadFile(target, rendition.data(), rendition.contentType());
+            } catch (Exception e) {
+                // The rendition is still served; it just has to be rendered again after a restart
+                logger.warn("Could not write rendition {}: {}", target, e.getMessage());
+            }
+        }
+        return rendition;
+    }
+
+    private Rendition readStored(String stored, String eTag) {
+        if (keyIndex.isFresh() && keyIndex.get(stored) == null) {
+            return null;
+        }
+        try (ObjectContent content = storage.downloadFile(stored)) {
+            byte[] data = content.stream().readAllBytes();
+            return new Rendition(eTag, data, sniffContentType(data));
+        } catch (Exception e) {
+            logger.debug("No stored rendition {}: {}", stored, e.getMessage());
+            return null;
+        }
+    }
+
+    // A source that turns out not to render is aborted rather than closed: closing
+    // would drain up to max-source-size bytes of it just to keep the connection
+    private Rendition render(String key, int size) throws Exception {
+        ObjectContent content = storage.downloadFile(key);
+        boolean decoded = false;
+        try {
+            if (content.metadata().size() > maxSourceSize) {
+                throw new UnrenderableImageException(key, "larger than " + maxSourceSize + " bytes");
+            }
+            BufferedImage image = decode(key, content.stream(), size);
+            decoded = true;
+            content.close();
+            BufferedImage scaled = scale(image, size);
+            boolean alpha = scaled.getColorModel().hasAlpha();
+            byte[] data = alpha ? encodePng(scaled) : encodeJpeg(scaled);
+            return new Rendition(content.metadata().eTag(), data, alpha ? "image/png" : "image/jpeg");
+        } catch (UnrenderableImageException e) {
+            rememberUnrenderable(key, content.metadata().eTag(), e.reason());
+            throw e;
+        } finally {
+            if (!decoded) {
+                content.abort();
+            }
+        }
+    }
+
+    private BufferedImage decode(String key, InputStream in, int size) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(in)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                throw new UnrenderableImageException(key, "not an image format that can be decoded");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > maxPixels) {
+                    throw new UnrenderableImageException(key, width + "x" + height + " is more than "
+                            + maxPixels + " pixels");
+                }
+                // Decoding every nth pixel only, down to about twice the target, means a
+                // 40 megapixel photo is never held in memory at full size
+                int step = Math.max(1, Math.max(width, height) / (size * 2));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } catch (IIOException e) {
+                throw new UnrenderableImageException(key, e.getMessage());
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // Halves with bilinear filtering until within a factor of two, then scales to the
+    // exact size: one bilinear step from far larger skips most pixels and aliases.
+    // Images already small enough are only converted to a type the encoders take.
+    private static BufferedImage scale(BufferedImage image, int size) {
+        double factor = Math.min(1.0, (double) size / Math.max(image.getWidth(), image.getHeight()));
+        int targetWidth = Math.max(1, (int) Math.round(image.getWidth() * factor));
+        int targetHeight = Math.max(1, (int) Math.round(image.getHeight() * factor));
+        int type = image.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+
+        BufferedImage current = image;
+        int width = image.getWidth();
+        int height = image.getHeight();
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            BufferedImage next = new BufferedImage(width, height, type);
+            Graphics2D graphics = next.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.drawImage(current, 0, 0, width, height, null);
+            } finally {
+                graphics.dispose();
+            }
+            current = next;
+        } while (width != targetWidth || height != targetHeight);
+        return current;
+    }
+
+    private byte[] encodeJpeg(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] encodePng(BufferedImage image) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+
+    // Stored renditions are read back without trusting the backend to keep a content type
+    private static String sniffContentType(byte[] data) {
+        return data.length > 0 && data[0] == (byte) 0x89 ? "image/png" : "image/jpeg";
+    }
+
+    private synchronized Rendition cached(String key, int size, String eTag) {
+        Rendition rendition = eTag == null ? null : cache.get(new RenditionKey(key, size));
+        if (rendition == null || !eTag.equals(rendition.sourceETag())) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return rendition;
+    }
+
+    private synchronized String knownUnrenderable(String key, String eTag) {
+        Unrenderable known = eTag == null ? null : unrenderable.get(key);
+        return known != null && eTag.equals(known.eTag()) ? known.reason() : null;
+    }
+
+    private synchronized void rememberUnrenderable(String key, String eTag, String reason) {
+        if (eTag != null) {
+            unrenderable.put(key, new Unrenderable(eTag, reason));
+        }
+    }
+
+    private synchronized void put(String key, int size, Rendition rendition) {
+        if (rendition.sourceETag() == null) {
+            return;
+        }
+        RenditionKey renditionKey = new RenditionKey(key, size);
+        Rendition previous = cache.put(renditionKey, rendition);
+        if (previous != null) {
+            cacheBytes -= weight(renditionKey, previous);
+        }
+        cacheBytes += weight(renditionKey, rendition);
+
+        Iterator<Map.Entry<RenditionKey, Rendition>> eldest = cache.entrySet().iterator();
+        while (cacheBytes > capacity && eldest.hasNext()) {
+            Map.Entry<RenditionKey, Rendition> evicted = eldest.next();
+            eldest.remove();
+            cacheBytes -= weight(evicted.getKey(), evicted.getValue());
+        }
+    }
+
+    // Called after every write or delete of the original through the app. With the
+    // key index on, the listener below removes the written-back renditions by their
+    // exact keys; without it, they are found by listing the original's prefix.
+    public void invalidate(String key) {
+        if (!enabled || isRendition(key)) {
+            return;
+        }
+        dropCached(key);
+        if (isWritingBack() && !keyIndex.isEnabled() && isImageKey(key)) {
+            cleanUp(key, () -> storage.deleteByPrefix(storedPrefix(key)));
+        }
+    }
+
+    @Override
+    public void keyChanged(String key, ObjectSummary previous, ObjectSummary current) {
+        if (previous == null || isRendition(key)) {
+            return;
+        }
+        dropCached(key);
+        if (isWritingBack() && isImageKey(key) && previous.eTag() != null) {
+            List<String> stale = new ArrayList<>(sizes.size());
+            for (int size : sizes) {
+                stale.add(storedKey(key, size, previous.eTag()));
+            }
+            cleanUp(key, () -> storage.deleteFiles(stale));
+        }
+    }
+
+    private void cleanUp(String key, Runnable removal) {
+        if (!pendingCleanups.add(key)) {
+            return;
+        }
+        cleaner.execute(() -> {
+            try {
+                removal.run();
+                logger.debug("Removed stored renditions of key: {}", key);
+            } catch (Exception e) {
+                logger.warn("Could not remove stored renditions of key {}: {}", key, e.getMessage());
+            } finally {
+                pendingCleanups.remove(key);
+            }
+        });
+    }
+
+    private synchronized void dropCached(String key) {
+        unrenderable.remove(key);
+        for (int size : sizes) {
+            RenditionKey renditionKey = new RenditionKey(key, size);
+            Rendition removed = cache.remove(renditionKey);
+            if (removed != null) {
+                cacheBytes -= weight(renditionKey, removed);
+            }
+        }
+    }
+
+    private boolean isWritingBack() {
+        return writeBack && !readOnlyMode;
+    }
+
+    // Only keys named like images are written back, so cleanup never has to
+    // look for renditions of anything else
+    private static boolean isImageKey(String key) {
+        return BucketController.determineContentType(key).startsWith("image/");
+    }
+
+    // <prefix><sha-256 of the key>/<size>-<source ETag>: keys of any shape map to one
+    // flat, unambiguous folder per original
+    private String storedKey(String key, int size, String eTag) {
+        return storedPrefix(key) + size + "-" + token(eTag);
+    }
+
+    private String storedPrefix(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            return prefix + HexFormat.of().formatHex(digest) + "/";
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String token(String eTag) {
+        return eTag == null ? "none" : eTag.replaceAll("[^A-Za-z0-9-]", "");
+    }
+
+    public synchronized Map<String, Object> stats() {
+        return Map.of(
+                "entries", cache.size(),
+                "bytes", cacheBytes,
+                "hits", hits.get(),
+                "misses", misses.get(),
+                "renders", renders.get(),
+                "rejected", rejected.get(),
+                "unrenderable", unrenderable.size(),
+                "queued", workers == null ? 0 : workers.getQueue().size());
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (!enabled) {
+            return;
+        }
+        FunctionCounter.builder("bucket.thumbnail.requests", hits, AtomicLong::get)
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("bucket.thumbnail.requests", misses, AtomicLong::get)
+                .tag("result", "miss")
+                .register(registry);
+        FunctionCounter.builder("bucket.thumbnail.renders", renders, AtomicLong::get)
+                .register(registry);
+        FunctionCounter.builder("bucket.thumbnail.rejected", rejected, AtomicLong::get)
+                .register(registry);
+        Gauge.builder("bucket.thumbnail.cache.size", this, ThumbnailService::currentBytes)
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    private synchronized long currentBytes() {
+        return cacheBytes;
+    }
+
+    private static long weight(RenditionKey key, Rendition rendition) {
+        return rendition.data().length + key.key().length() * 2L + ENTRY_OVERHEAD;
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.bucketbrowser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+// Pool of large copy buffers shared by every transfer, so streaming an object of
+// any size costs one pooled buffer instead of fresh allocations per request
+public final class TransferBuffers {
+
+    public static final int BUFFER_SIZE = 128 * 1024;
+    private static final int MAX_POOLED = 64;
+
+    private static final BlockingQueue<byte[]> pool = new ArrayBlockingQueue<>(MAX_POOLED);
+
+    private TransferBuffers() {
+    }
+
+    public static byte[] acquire() {
+        byte[] buffer = pool.poll();
+        return buffer != null ? buffer : new byte[BUFFER_SIZE];
+    }
+
+    public static void release(byte[] buffer) {
+        if (buffer != null && buffer.length == BUFFER_SIZE) {
+            pool.offer(buffer);
+        }
+    }
+
+    // Copies until end of stream and returns the number of bytes written
+    public static long copy(InputStream in, OutputStream out) throws IOException {
+        byte[] buffer = acquire();
+        try {
+            long total = 0;
+            int length;
+            while ((length = in.read(buffer)) > -1) {
+                out.write(buffer, 0, length);
+                total += length;
+            }
+            return total;
+        } finally {
+            release(buffer);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.bucketbrowser;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+
+@Configuration
+public class TransferConfig {
+    private static final Logger logger = LoggerFactory.getLogger(TransferConfig.class);
+
+    @Value("${bucket.transfer.threads:32}")
+    private int transferThreads;
+
+    // The same switch Spring Boot uses for Tomcat and the MVC async executor. The
+    // build targets Java 17, where it does nothing; it only takes effect when the
+    // jar is run on a Java 21+ JVM.
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    @Value("${bucket.download.max-buffered-parts:32}")
+    private int maxBufferedParts;
+
+    public static boolean virtualThreadsSupported() {
+        return Runtime.version().feature() >= 21;
+    }
+
+    // Shared pool for the concurrent S3 calls a single request fans out into
+    // (upload parts, range fetches, batch deletes). Each caller bounds its own
+    // share of it, so one large transfer cannot starve the rest. In virtual thread
+    // mode every task gets its own virtual thread and the pool size no longer applies.
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService transferExecutor() {
+        if (virtualThreads && virtualThreadsSupported()) {
+            logger.info("Execution mode: virtual threads for requests, streaming and S3 transfers");
+            return new ThreadPoolExecutor(0, Integer.MAX_VALUE, 0, TimeUnit.SECONDS, new SynchronousQueue<>(),
+                    new VirtualThreadTaskExecutor("s3-transfer-").getVirtualThreadFactory());
+        }
+        if (virtualThreads) {
+            // Spring Boot ignores the property below Java 21 as well, so the whole app stays on platform threads
+            logger.warn("spring.threads.virtual.enabled is set but Java {} has no virtual threads; using platform threads",
+                    Runtime.version().feature());
+        } else {
+            logger.info("Execution mode: platform threads ({} S3 transfer threads)", transferThreads);
+        }
+
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newFixedThreadPool(transferThreads, runnable -> {
+            Thread thread = new Thread(runnable, "s3-transfer-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Read-ahead part buffers of all parallel downloads together. Each download may
+    // always hold one part, so this caps the memory that parallelism adds on top:
+    // at most max-buffered-parts * bucket.download.part-size bytes.
+    @Bean
+    public Semaphore readAheadPermits() {
+        return new Semaphore(Math.max(0, maxBufferedParts));
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.bucketbrowser;
+
+// Thrown when no thumbnail can be made of an object: not an image format the JDK
+// decodes, or past the source size or pixel limits
+public class UnrenderableImageException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final String reason;
+
+    public UnrenderableImageException(String key, String reason) {
+        super("Cannot render a thumbnail of " + key + ": " + reason);
+        this.reason = reason;
+    }
+
+    public String reason() {
+        return reason;
+    }
+}
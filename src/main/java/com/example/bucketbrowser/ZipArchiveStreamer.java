@@ -0,0 +1,203 @@
+package com.example.bucketbrowser;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+// Writes a ZIP archive of many objects straight to the response as it is built.
+// The next few objects are opened on the transfer executor while the current one
+// is being written, so per-object request latency overlaps with the transfer of
+// the previous entries. Small objects are read whole while prefetching; larger
+// ones are only opened when their turn comes and streamed through, so no
+// connection sits idle in the window and memory stays bounded by
+// prefetch * SMALL_OBJECT_BYTES plus one copy buffer.
+@Component
+public class ZipArchiveStreamer {
+    private static final Logger logger = LoggerFactory.getLogger(ZipArchiveStreamer.class);
+
+    private static final int SMALL_OBJECT_BYTES = 1024 * 1024;
+
+    // content completes with null for an object too large to prefetch
+    private record Pending(String key, Future<ObjectContent> content) {
+    }
+
+    @Value("${bucket.archive.prefetch:8}")
+    private int prefetch;
+
+    @Value("${bucket.archive.compression-level:1}")
+    private int compressionLevel;
+
+    private final ExecutorService transferExecutor;
+
+    @Autowired
+    public ZipArchiveStreamer(ExecutorService transferExecutor) {
+        this.transferExecutor = transferExecutor;
+    }
+
+    // Objects come from objectSource in pages, as from a listing, and must not repeat;
+    // a size below 0 means unknown. Each is stored under its key with stripPrefix
+    // removed. Returns the number of entries written.
+    public int write(OutputStream out, String stripPrefix, Consumer<Consumer<List<ObjectSummary>>> objectSource,
+                     StorageBackend storage) throws IOException {
+        ArrayDeque<Pending> window = new ArrayDeque<>(prefetch);
+        AtomicBoolean closed = new AtomicBoolean(false);
+        int[] entries = {0};
+        ZipOutputStream zip = new ZipOutputStream(out);
+        zip.setLevel(compressionLevel);
+
+        try {
+            objectSource.accept(objects -> {
+                try {
+                    for (ObjectSummary object : objects) {
+                        // Zero-byte "folder" markers have no place in the archive
+                        if (object.key().endsWith("/")) {
+                            continue;
+                        }
+                        window.add(new Pending(object.key(),
+                                transferExecutor.submit(() -> prefetch(object, storage, closed))));
+                        if (window.size() >= Math.max(1, prefetch)) {
+                            entries[0] += writeEntry(zip, window.poll(), stripPrefix, storage);
+                        }
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            while (!window.isEmpty()) {
+                entries[0] += writeEntry(zip, window.poll(), stripPrefix, storage);
+            }
+            zip.finish();
+            zip.flush();
+            return entries[0];
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            closed.set(true);
+            for (Pending pending : window) {
+                discard(pending);
+            }
+        }
+    }
+
+    // Null when the object is too large to hold, or the archive was given up on
+    private ObjectContent prefetch(ObjectSummary object, StorageBackend storage, AtomicBoolean closed)
+            throws Exception {
+        long size = object.size() >= 0 ? object.size() : storage.headObject(object.key()).size();
+        if (size > SMALL_OBJECT_BYTES || closed.get()) {
+            return null;
+        }
+        ObjectContent content = storage.downloadFile(object.key());
+        if (closed.get()) {
+            content.abort();
+            return null;
+        }
+        if (content.contentLength() > SMALL_OBJECT_BYTES) {
+            // Grew since it was listed; better dropped now than left idle in the window
+            content.abort();
+            return null;
+        }
+        byte[] data;
+        try {
+            data = content.stream().readAllBytes();
+        } finally {
+            content.close();
+        }
+        return new ObjectContent(content.metadata(), new ByteArrayInputStream(data), data.length, null);
+    }
+
+    private int writeEntry(ZipOutputStream zip, Pending pending, String stripPrefix, StorageBackend storage)
+            throws IOException {
+        ObjectContent content;
+        try {
+            content = pending.content().get();
+            if (content == null) {
+                content = storage.downloadFile(pending.key());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while fetching " + pending.key(), e);
+        } catch (Exception e) {
+            // Most likely deleted since it was listed; leave it out rather than fail the whole archive
+            Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+            logger.warn("Skipping {} in archive: {}", pending.key(), cause.getMessage());
+            return 0;
+        }
+
+        String key = pending.key();
+        String path = stripPrefix != null && key.startsWith(stripPrefix)
+                ? key.substring(stripPrefix.length())
+                : key;
+        String name = entryName(path);
+        if (!name.equals(path)) {
+            logger.warn("Archiving key {} as {}", key, name);
+        }
+        ZipEntry entry = new ZipEntry(name);
+        if (content.metadata().lastModified() != null) {
+            entry.setLastModifiedTime(FileTime.from(content.metadata().lastModified()));
+        }
+        try {
+            zip.putNextEntry(entry);
+        } catch (ZipException e) {
+            // Two keys that differ only in what entryName rewrites; the first one stays
+            content.abort();
+            logger.warn("Skipping {} in archive: {}", key, e.getMessage());
+            return 0;
+        } catch (IOException e) {
+            content.abort();
+            throw e;
+        }
+        content.transferTo(zip);
+        zip.closeEntry();
+        return 1;
+    }
+
+    // S3 keys may hold segments an unzip tool would resolve outside the folder it
+    // extracts to ("../x", "/etc/x", "a\..\x"), so entry names keep only plain
+    // '/'-separated segments: '\' becomes '/', empty segments are dropped and
+    // '.' and '..' become '_'
+    static String entryName(String path) {
+        StringBuilder name = new StringBuilder(path.length());
+        for (String segment : path.replace('\\', '/').split("/")) {
+            if (segment.isEmpty()) {
+                continue;
+            }
+            if (name.length() > 0) {
+                name.append('/');
+            }
+            name.append(segment.equals(".") || segment.equals("..") ? "_" : segment);
+        }
+        return name.length() == 0 ? "_" : name.toString();
+    }
+
+    private static void discard(Pending pending) {
+        if (pending.content().cancel(true)) {
+            return;
+        }
+        try {
+            ObjectContent content = pending.content().get();
+            if (content != null) {
+                content.abort();
+            }
+        } catch (Exception e) {
+            logger.debug("Ignoring failure of discarded prefetch for {}: {}", pending.key(), e.getMessage());
+        }
+    }
+}
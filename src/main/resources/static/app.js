@@ -23,9 +23,17 @@ const state = {
     organizedFiles: [], // Files organized by current path
     selectedFiles: new Set(),
     breadcrumbs: [{ name: "Root", path: "" }],
-    currentPath: ""
+    currentPath: "",
+    searchResults: null // Server-side search hits below the current path, null when not searching
 };
 
+let searchTimer = null;
+
+// Server-sent change feed; while it is connected the listing is patched from its
+// events instead of being fetched again after every upload, edit and delete
+let changeFeed = null;
+let changeFeedLive = false;
+
 let appConfig = {
     readOnlyMode: false,
     demoMode: false,
@@ -69,6 +77,9 @@ document.addEventListener('DOMContentLoaded', async () => {
     // Set up event listeners
     setupEventListeners();
     
+    // Subscribe before the first listing so no change falls in between
+    connectChangeFeed();
+
     // Load files
     await loadFiles();
 });
@@ -116,6 +127,12 @@ function setupEventListeners() {
     if (refreshBtn) {
         refreshBtn.addEventListener('click', loadFiles);
     }
+
+    // Add event listener for download selected button
+    const downloadSelectedBtn = document.getElementById('download-selected-btn');
+    if (downloadSelectedBtn) {
+        downloadSelectedBtn.addEventListener('click', downloadSelectedFiles);
+    }
     
     // Only set up upload in non-read-only mode
     if (!appConfig.readOnlyMode) {
@@ -206,24 +223,30 @@ async function loadFiles() {
     }
     
     try {
-        // Fetch files from server
-        const response = await authenticatedFetch('/bucket/list');
-        
-        if (!response.ok) {
-            throw new Error(`Failed to load files: ${response.status} ${response.statusText}`);
-        }
+        // Fetch only the current folder level from the server, showing the rows
+        // of each page as it arrives instead of waiting for the whole folder
+        const path = state.currentPath;
+        const showListing = listing => {
+            // The user may have moved on to another folder while this one loads
+            if (state.currentPath !== path) return;
+            state.files = listing.objects.map(object => object.key);
+            state.organizedFiles = organizeFiles(listing);
+            state.searchResults = null;
+            renderFiles();
+        };
+        const listing = await fetchFolderListing(path, showListing);
+        log('Received files:', listing);
         
-        // Parse response
-        state.files = await response.json();
-        log('Received files:', state.files);
-        
-        // Organize files by current path
-        state.organizedFiles = organizeFiles(state.files);
+        // Render the complete folder and breadcrumbs
+        showListing(listing);
         log('Organized files:', state.organizedFiles);
-        
-        // Render files and breadcrumbs
-        renderFiles();
         renderBreadcrumbs();
+
+        // Re-run an active search against the folder we are now in
+        const searchInput = document.getElementById('search-input');
+        if (searchInput && searchInput.value.trim()) {
+            runSearch();
+        }
         
     } catch (error) {
         console.error('Error loading files:', error);
@@ -324,115 +347,254 @@ function handleFormUpload(e) {
         }
     }
     
-    // Create FormData
-    const formData = new FormData();
-    formData.append('file', fileToUpload);
-    formData.append('key', key);
-    
-    // Upload the file
-    authenticatedFetch('/bucket/upload', {
-        method: 'POST',
-        body: formData
-    })
-    .then(response => {
-        if (!response.ok) {
-            return response.text().then(text => {
-                throw new Error(`${response.status} ${response.statusText}: ${text}`);
-            });
-        }
-        return response.text();
-    })
-    .then(() => {
-        // Success!
-        if (progressBar) progressBar.style.width = '100%';
-        if (progressText) progressText.textContent = '100%';
-        
+    const updateProgress = (percent) => {
+        if (progressBar) progressBar.style.width = `${percent}%`;
+        if (progressText) progressText.textContent = `${percent}%`;
+
         // Update ARIA value
         const progressBarElement = document.querySelector('.progress-track');
         if (progressBarElement) {
-            progressBarElement.setAttribute('aria-valuenow', '100');
+            progressBarElement.setAttribute('aria-valuenow', String(percent));
         }
-        
+    };
+
+    // Send the file as the raw request body so the server can stream it straight
+    // into S3; XHR (unlike fetch) reports upload progress
+    const encodedKey = key.split('/').map(encodeURIComponent).join('/');
+    const xhr = new XMLHttpRequest();
+    xhr.open('PUT', `/bucket/upload/${encodedKey}`);
+    if (fileToUpload.type) {
+        xhr.setRequestHeader('Content-Type', fileToUpload.type);
+    }
+
+    xhr.upload.onprogress = (event) => {
+        if (event.lengthComputable) {
+            updateProgress(Math.floor(event.loaded * 100 / event.total));
+        }
+    };
+
+    xhr.onload = () => {
+        if (xhr.status === 401 || xhr.status === 403) {
+            window.location.href = '/login';
+            return;
+        }
+        if (xhr.status < 200 || xhr.status >= 300) {
+            console.error('Error uploading file:', xhr.status, xhr.responseText);
+            alert(`Failed to upload file: ${xhr.status} ${xhr.statusText}: ${xhr.responseText}`);
+            if (uploadProgress) uploadProgress.style.display = 'none';
+            return;
+        }
+
+        // Success!
+        updateProgress(100);
+
         setTimeout(() => {
             if (uploadModal) uploadModal.style.display = 'none';
             if (backdrop) backdrop.style.display = 'none';
-            loadFiles(); // Refresh the file list
+            refreshAfterChange(); // Refresh the file list
         }, 1000);
-    })
-    .catch(error => {
-        console.error('Error uploading file:', error);
-        alert(`Failed to upload file: ${error.message}`);
+    };
+
+    xhr.onerror = () => {
+        console.error('Error uploading file: network error');
+        alert('Failed to upload file: network error');
         if (uploadProgress) uploadProgress.style.display = 'none';
-    });
+    };
+
+    xhr.send(fileToUpload);
+}
+
+// Fetch the direct children of a folder, following the server's page cursor.
+// onPage, if given, is called with the listing so far while more pages follow.
+async function fetchFolderListing(path, onPage) {
+    const prefix = path ? path + '/' : '';
+    const listing = { prefix: prefix, objects: [], prefixes: [] };
+    let cursor = null;
+
+    do {
+        const params = new URLSearchParams({ prefix: prefix, delimiter: '/', pageSize: '1000', format: 'compact' });
+        if (cursor) params.set('cursor', cursor);
+
+        const response = await authenticatedFetch(`/bucket/list?${params}`);
+        if (!response.ok) {
+            throw new Error(`Failed to load files: ${response.status} ${response.statusText}`);
+        }
+
+        const page = await response.json();
+        listing.objects.push(...decodeCompactListing(page.objects));
+        listing.prefixes.push(...page.prefixes);
+        cursor = page.nextCursor;
+        if (cursor && onPage) onPage(listing);
+    } while (cursor);
+
+    return listing;
+}
+
+// Expand a compact listing block (front-coded keys plus columns) into objects
+function decodeCompactListing(block) {
+    const objects = [];
+    let previous = '';
+    for (let i = 0; i < block.suffixes.length; i++) {
+        const key = previous.substring(0, block.shared[i]) + block.suffixes[i];
+        objects.push({
+            key: key,
+            size: block.sizes[i],
+            lastModified: block.lastModified[i] ? new Date(block.lastModified[i]) : null,
+            eTag: block.eTags[i],
+            storageClass: block.storageClass[i] >= 0 ? block.storageClasses[block.storageClass[i]] : null,
+        });
+        previous = key;
+    }
+    return objects;
 }
 
-// Organize files by current path and identify folders
-function organizeFiles(allKeys) {
-    const currentPathPrefix = state.currentPath ? state.currentPath + '/' : '';
+// Turn a folder listing into display entries
+function organizeFiles(listing) {
     const result = [];
-    const seenFolders = new Set();
-    
+
     log('Organizing files for path:', state.currentPath);
-    log('Current path prefix:', currentPathPrefix);
-    
-    allKeys.forEach(key => {
-        // Skip keys that don't start with the current path
-        if (state.currentPath && !key.startsWith(currentPathPrefix) && key !== state.currentPath) {
-            log('Skipping key not in current path:', key);
+
+    listing.prefixes.forEach(folderPrefix => {
+        // Written-back thumbnails live under a hidden prefix
+        if (isThumbnailKey(folderPrefix)) {
             return;
         }
-        
-        // Skip the current path itself
-        if (key === state.currentPath && state.currentPath !== '') {
-            log('Skipping current path itself:', key);
+        // Folder keys are kept without the trailing slash for navigation
+        const folderKey = folderPrefix.substring(0, folderPrefix.length - 1);
+        result.push({
+            key: folderKey,
+            name: folderKey.substring(listing.prefix.length),
+            isFolder: true,
+        });
+    });
+
+    listing.objects.forEach(object => {
+        // Skip the folder marker object for the current path itself
+        if (object.key === listing.prefix) {
             return;
         }
-        
-        // Remove the current path prefix to get relative path
-        const relativePath = state.currentPath ? 
-            (key.startsWith(currentPathPrefix) ? key.substring(currentPathPrefix.length) : key) : 
-            key;
-        
-        // Skip if relative path is empty
-        if (!relativePath) {
-            log('Skipping empty relative path for key:', key);
-            return;
+        result.push({
+            key: object.key,
+            name: object.key.substring(listing.prefix.length),
+            isFolder: false,
+            size: object.size,
+            lastModified: object.lastModified,
+            storageClass: object.storageClass,
+        });
+    });
+    
+    return result.sort(compareEntries);
+}
+
+// Sort folders first, then files alphabetically
+function compareEntries(a, b) {
+    if (a.isFolder && !b.isFolder) return -1;
+    if (!a.isFolder && b.isFolder) return 1;
+    return a.name.localeCompare(b.name);
+}
+
+function connectChangeFeed() {
+    if (!appConfig.changeFeed || typeof EventSource === 'undefined') return;
+
+    changeFeed = new EventSource('/bucket/changes');
+    changeFeed.onopen = () => {
+        log('Change feed connected');
+        changeFeedLive = true;
+    };
+    changeFeed.onerror = () => {
+        changeFeedLive = false;
+        // The browser retries by itself unless the server refused the stream outright
+        if (changeFeed.readyState === EventSource.CLOSED) {
+            log('Change feed closed, retrying later');
+            setTimeout(connectChangeFeed, 30000);
         }
-        
-        log('Processing key:', key, 'relativePath:', relativePath);
-        
-        const parts = relativePath.split('/');
-        
-        if (parts.length === 1) {
-            // This is a file in the current directory
-            log('Adding file:', parts[0]);
-            result.push({
-                key: key,
-                name: parts[0],
+    };
+    changeFeed.addEventListener('changes', (e) => applyChanges(JSON.parse(e.data)));
+    // Too much was missed to patch the listing; start over from a fresh one
+    changeFeed.addEventListener('reset', () => loadFiles());
+}
+
+// Reload after one of our own changes only when the change feed will not report it
+function refreshAfterChange() {
+    if (!changeFeedLive) {
+        loadFiles();
+    }
+}
+
+// Apply created, updated and deleted keys from the change feed to the folder on screen
+function applyChanges(changes) {
+    log('Applying changes:', changes.length);
+    const prefix = state.currentPath ? state.currentPath + '/' : '';
+    const folders = new Map();
+    const files = new Map();
+    state.organizedFiles.forEach(entry => (entry.isFolder ? folders : files).set(entry.key, entry));
+    const touchedFolders = new Set();
+    let changed = false;
+
+    for (const change of changes) {
+        if (isThumbnailKey(change.key) || !change.key.startsWith(prefix) || change.key === prefix) continue;
+        const name = change.key.substring(prefix.length);
+        const slash = name.indexOf('/');
+
+        if (slash >= 0) {
+            // Somewhere below a subfolder: only the folder row itself can change
+            const folderKey = prefix + name.substring(0, slash);
+            if (change.type === 'deleted') {
+                if (folders.has(folderKey)) touchedFolders.add(folderKey);
+            } else if (!folders.has(folderKey)) {
+                folders.set(folderKey, { key: folderKey, name: name.substring(0, slash), isFolder: true });
+                changed = true;
+            }
+        } else if (change.type === 'deleted') {
+            if (files.delete(change.key)) {
+                state.selectedFiles.delete(change.key);
+                changed = true;
+            }
+        } else {
+            const previous = files.get(change.key);
+            files.set(change.key, {
+                key: change.key,
+                name: name,
                 isFolder: false,
-                size: 0, // Size would need to be fetched from the backend
+                size: change.size,
+                lastModified: change.lastModified ? new Date(change.lastModified) : null,
+                storageClass: previous ? previous.storageClass : null,
             });
-        } else if (parts.length > 1) {
-            // This is a subfolder
-            const folderName = parts[0];
-            if (!seenFolders.has(folderName)) {
-                log('Adding folder:', folderName);
-                seenFolders.add(folderName);
-                result.push({
-                    key: state.currentPath ? `${state.currentPath}/${folderName}` : folderName,
-                    name: folderName,
-                    isFolder: true,
-                });
-            }
+            changed = true;
         }
-    });
-    
-    // Sort folders first, then files alphabetically
-    return result.sort((a, b) => {
-        if (a.isFolder && !b.isFolder) return -1;
-        if (!a.isFolder && b.isFolder) return 1;
-        return a.name.localeCompare(b.name);
-    });
+    }
+
+    if (changed) {
+        state.organizedFiles = [...folders.values(), ...files.values()].sort(compareEntries);
+        state.files = [...files.keys()];
+        renderFiles();
+        updateDeleteButton();
+    }
+
+    // A folder only disappears once the last key under it is gone
+    touchedFolders.forEach(folderKey => removeFolderIfEmpty(folderKey));
+
+    // Search hits may have come or gone as well
+    if (state.searchResults) {
+        filterFiles();
+    }
+}
+
+async function removeFolderIfEmpty(folderKey) {
+    const params = new URLSearchParams({ prefix: folderKey + '/', pageSize: '1' });
+    try {
+        const response = await authenticatedFetch(`/bucket/list?${params}`);
+        if (!response.ok) return;
+        const page = await response.json();
+        if (page.keys.length > 0) return;
+        const before = state.organizedFiles.length;
+        state.organizedFiles = state.organizedFiles.filter(entry => !(entry.isFolder && entry.key === folderKey));
+        if (state.organizedFiles.length !== before) {
+            renderFiles();
+        }
+    } catch (error) {
+        log('Could not check folder:', folderKey, error);
+    }
 }
 
 // Navigate to a folder
@@ -516,16 +678,29 @@ function renderFiles() {
                 </td>
                 <td>
                     <div class="pf-l-flex pf-m-align-items-center">
-                        <i class="file-icon fas ${file.isFolder ? 'fa-folder folder-icon' : getFileIcon(file.name)}"></i>
+                        ${hasThumbnail(file.name) ? `
+                            <img class="file-thumbnail" loading="lazy" alt="" src="${thumbnailUrl(file.key, 'small')}">
+                        ` : ''}
+                        <i class="file-icon fas ${file.isFolder ? 'fa-folder folder-icon' : getFileIcon(file.name)}"
+                           ${hasThumbnail(file.name) ? 'style="display: none"' : ''}></i>
                         <span class="${file.isFolder ? 'folder-name' : 'file-name'}">${file.name}</span>
                     </div>
                 </td>
-                <td>
+                <td title="${file.isFolder ? '' : describeObject(file)}">
                     ${file.isFolder ? '' : formatFileSize(file.size)}
                 </td>
                 <td>
                     <div class="pf-l-flex pf-m-justify-content-flex-end pf-m-gap-sm">
-                        ${file.isFolder ? '' : `
+                        ${file.isFolder ? `
+                            <button class="pf-c-button pf-m-plain action-btn download-folder-btn" title="Download as ZIP">
+                                <i class="fas fa-file-archive"></i>
+                            </button>
+                            ${!appConfig.readOnlyMode ? `
+                                <button class="pf-c-button pf-m-plain action-btn delete delete-folder-btn" title="Delete folder">
+                                    <i class="fas fa-trash"></i>
+                                </button>
+                            ` : ''}
+                        ` : `
                             <button class="pf-c-button pf-m-plain action-btn download-btn" title="Download">
                                 <i class="fas fa-download"></i>
                             </button>
@@ -573,6 +748,14 @@ function addFileItemEventListeners() {
         });
     });
 
+    // Thumbnails that cannot be rendered fall back to the file type icon
+    document.querySelectorAll('.file-thumbnail').forEach(img => {
+        img.addEventListener('error', () => {
+            img.nextElementSibling.style.display = '';
+            img.remove();
+        });
+    });
+
     // Folder names
     document.querySelectorAll('.folder-name').forEach(folder => {
         folder.addEventListener('click', (e) => {
@@ -622,6 +805,22 @@ function addFileItemEventListeners() {
             deleteFile(key);
         });
     });
+
+    // Folder download buttons
+    document.querySelectorAll('.download-folder-btn').forEach(btn => {
+        btn.addEventListener('click', (e) => {
+            const fileItem = e.target.closest('tr');
+            downloadFolder(fileItem.dataset.key);
+        });
+    });
+
+    // Folder delete buttons
+    document.querySelectorAll('.delete-folder-btn').forEach(btn => {
+        btn.addEventListener('click', (e) => {
+            const fileItem = e.target.closest('tr');
+            deleteFolder(fileItem.dataset.key);
+        });
+    });
 }
 
 // Render breadcrumbs
@@ -659,8 +858,48 @@ function renderBreadcrumbs() {
     });
 }
 
-// Filter files based on search input
+// Filter files based on search input. The search runs on the server across
+// everything below the current folder, debounced while the user is typing.
 function filterFiles() {
+    clearTimeout(searchTimer);
+    searchTimer = setTimeout(runSearch, 250);
+}
+
+async function runSearch() {
+    const searchInput = document.getElementById('search-input');
+    const searchTerm = searchInput && searchInput.value ? searchInput.value.trim() : '';
+
+    if (!searchTerm) {
+        state.searchResults = null;
+        renderFiles();
+        return;
+    }
+
+    const prefix = state.currentPath ? state.currentPath + '/' : '';
+    const mode = /[*?]/.test(searchTerm) ? 'glob' : 'substring';
+    const params = new URLSearchParams({ q: searchTerm, mode: mode, prefix: prefix, limit: '200' });
+
+    try {
+        const response = await authenticatedFetch(`/bucket/search?${params}`);
+        if (!response.ok) {
+            throw new Error(`Search failed: ${response.status} ${response.statusText}`);
+        }
+        const result = await response.json();
+
+        // Ignore responses for a term the user has already typed past
+        if (searchInput.value.trim() !== searchTerm) return;
+
+        state.searchResults = result.keys.filter(key => !isThumbnailKey(key)).map(key => ({
+            key: key,
+            name: key.substring(prefix.length),
+            isFolder: false,
+        }));
+        log('Search results:', result);
+    } catch (error) {
+        // Fall back to filtering the folder that is already loaded
+        log('Server search unavailable, filtering locally:', error);
+        state.searchResults = null;
+    }
     renderFiles();
 }
 
@@ -670,6 +909,8 @@ function filterFilesBySearch() {
     const searchTerm = searchInput && searchInput.value ? searchInput.value.toLowerCase().trim() : '';
     
     if (!searchTerm) return state.organizedFiles;
+
+    if (state.searchResults) return state.searchResults;
     
     return state.organizedFiles.filter(file => 
         file.name.toLowerCase().includes(searchTerm)
@@ -684,6 +925,11 @@ function updateDeleteButton() {
     if (deleteSelectedBtn) {
         deleteSelectedBtn.disabled = state.selectedFiles.size === 0;
     }
+
+    const downloadSelectedBtn = document.getElementById('download-selected-btn');
+    if (downloadSelectedBtn) {
+        downloadSelectedBtn.disabled = state.selectedFiles.size === 0;
+    }
     
     if (selectAllCheckbox && document.querySelectorAll('.file-checkbox').length > 0) {
         selectAllCheckbox.checked = 
@@ -724,6 +970,38 @@ function downloadFile(key) {
     document.body.removeChild(link);
 }
 
+// Download a folder as a ZIP built on the fly by the server
+function downloadFolder(folderKey) {
+    log('Downloading folder as ZIP:', folderKey);
+    const link = document.createElement('a');
+    link.href = `/bucket/archive?prefix=${encodeURIComponent(folderKey + '/')}`;
+    document.body.appendChild(link);
+    link.click();
+    document.body.removeChild(link);
+}
+
+// Download the selected files as one ZIP. A form POST lets the browser stream the
+// archive to disk itself, and keeps long selections out of the URL.
+function downloadSelectedFiles() {
+    if (state.selectedFiles.size === 0) return;
+    log(`Downloading ${state.selectedFiles.size} selected files as ZIP`);
+
+    const form = document.createElement('form');
+    form.method = 'POST';
+    form.action = '/bucket/archive';
+    form.style.display = 'none';
+    state.selectedFiles.forEach(key => {
+        const input = document.createElement('input');
+        input.type = 'hidden';
+        input.name = 'key';
+        input.value = key;
+        form.appendChild(input);
+    });
+    document.body.appendChild(form);
+    form.submit();
+    document.body.removeChild(form);
+}
+
 // Preview a file
 async function previewFile(key) {
     log('Previewing file:', key);
@@ -771,8 +1049,22 @@ async function previewFile(key) {
 
         previewTitle.textContent = key.split('/').pop();
 
-        log('Fetching file for preview:', key);
-        const response = await authenticatedFetch(`/bucket/download/${key}`);
+        // Text is read one window of lines at a time, never the whole object
+        if (!isImageFile(key)) {
+            await loadTextWindow(key, 1);
+            return;
+        }
+
+        // Images are previewed from the large rendition, not the original
+        let response = null;
+        if (hasThumbnail(key)) {
+            log('Fetching rendition for preview:', key);
+            response = await authenticatedFetch(thumbnailUrl(key, 'large'));
+        }
+        if (!response || !response.ok) {
+            log('Fetching file for preview:', key);
+            response = await authenticatedFetch(`/bucket/download/${key}`);
+        }
 
         if (!response.ok) {
             log('Preview fetch failed:', response.status, response.statusText);
@@ -782,52 +1074,14 @@ async function previewFile(key) {
         const contentType = response.headers.get('content-type');
         log('File content type:', contentType);
 
-        // Handle different content types
         if (contentType && contentType.startsWith('image/')) {
-            // Handle image preview
             log('Previewing as image');
             const blob = await response.blob();
             const imageUrl = URL.createObjectURL(blob);
             previewContainer.innerHTML = `<img src="${imageUrl}" alt="${key}" class="pf-c-image">`;
         } else {
-            // Try as text for anything that might be readable
-            log('Trying to preview as text');
-            try {
-                const text = await response.text();
-                
-                // Store the original text for editing
-                previewModal.dataset.originalContent = text;
-
-                if (text.length > 500000) {
-                    // If file is too large, show only the beginning
-                    previewContainer.innerHTML = `<pre>${escapeHtml(text.substring(0, 500000))}...\n\n[File truncated, too large to display completely]</pre>`;
-                } else {
-                    previewContainer.innerHTML = `<pre>${escapeHtml(text)}</pre>`;
-                    
-                    // Show edit button if not in read-only mode and file is text-based
-                    if (!appConfig.readOnlyMode && isTextFile(key)) {
-                        const editFileBtn = document.getElementById('edit-file-btn');
-                        if (editFileBtn) {
-                            editFileBtn.style.display = 'block';
-                            editFileBtn.onclick = () => switchToEditMode(text);
-                        }
-                    }
-                }
-
-                log('Text preview successful');
-            } catch (textError) {
-                log('Text preview failed:', textError);
-                previewContainer.innerHTML = `
-                    <div class="pf-c-empty-state">
-                        <div class="pf-c-empty-state__content">
-                            <i class="fas fa-file pf-c-empty-state__icon"></i>
-                            <h2 class="pf-c-title pf-m-lg">Preview not available</h2>
-                            <div class="pf-c-empty-state__body">
-                                <p>Preview not available for this file type or content</p>
-                            </div>
-                        </div>
-                    </div>`;
-            }
+            // Named like an image but stored as something else
+            await loadTextWindow(key, 1);
         }
     } catch (error) {
         console.error('Error previewing file:', error);
@@ -865,13 +1119,25 @@ async function deleteFile(key) {
         if (!response.ok) throw new Error('Failed to delete file');
         
         // If the deletion was successful, reload the files
-        loadFiles();
+        refreshAfterChange();
     } catch (error) {
         console.error('Error deleting file:', error);
         alert(`Failed to delete file: ${error.message}`);
     }
 }
 
+// Delete keys and/or a whole prefix in one request; the server batches them into
+// DeleteObjects calls and answers with a per-key report
+async function deleteBatch(body) {
+    const response = await authenticatedFetch('/bucket/delete-batch', {
+        method: 'POST',
+        headers: { 'Content-Type': 'application/json' },
+        body: JSON.stringify(body)
+    });
+    if (!response.ok) throw new Error(`Batch delete failed (${response.status})`);
+    return response.json();
+}
+
 // Delete selected files
 async function deleteSelectedFiles() {
     if (state.selectedFiles.size === 0) return;
@@ -886,25 +1152,18 @@ async function deleteSelectedFiles() {
     setLoading(true);
     
     try {
-        // Create an array of promises for each file deletion
-        const deletePromises = Array.from(state.selectedFiles).map(key =>
-            authenticatedFetch(`/bucket/delete/${key}`, {
-                method: 'DELETE'
-            })
-        );
-
-        // Wait for all deletions to complete
-        const results = await Promise.allSettled(deletePromises);
+        const report = await deleteBatch({ keys: Array.from(state.selectedFiles) });
 
-        // Check for any failures
-        const failures = results.filter(result => result.status === 'rejected');
-
-        if (failures.length > 0) {
-            console.warn(`${failures.length} out of ${results.length} deletions failed`);
+        report.deleted.forEach(key => state.selectedFiles.delete(key));
+        if (report.failed.length > 0) {
+            console.warn(`${report.failed.length} out of ${fileCount} deletions failed`, report.failed);
+            alert(`${report.failed.length} file(s) could not be deleted: ` +
+                report.failed.slice(0, 5).map(f => `${f.key} (${f.message || f.code})`).join(', '));
         }
 
         // Reload files regardless
-        loadFiles();
+        updateDeleteButton();
+        refreshAfterChange();
     } catch (error) {
         console.error('Error during batch deletion:', error);
         alert(`Some files could not be deleted. Please try again.`);
@@ -913,6 +1172,30 @@ async function deleteSelectedFiles() {
     }
 }
 
+// Delete a folder and everything under it
+async function deleteFolder(folderKey) {
+    log('Deleting folder:', folderKey);
+    if (!confirm(`Are you sure you want to delete the folder "${folderKey.split('/').pop()}" and everything in it?`)) {
+        return;
+    }
+
+    setLoading(true);
+
+    try {
+        const report = await deleteBatch({ prefix: `${folderKey}/` });
+        if (report.failed.length > 0) {
+            console.warn(`${report.failed.length} files in ${folderKey} could not be deleted`, report.failed);
+            alert(`${report.failed.length} file(s) in the folder could not be deleted.`);
+        }
+        refreshAfterChange();
+    } catch (error) {
+        console.error('Error deleting folder:', error);
+        alert(`Failed to delete folder: ${error.message}`);
+    } finally {
+        setLoading(false);
+    }
+}
+
 // Set loading state
 function setLoading(isLoading) {
     const loadingOverlay = document.getElementById('loading-overlay');
@@ -978,8 +1261,35 @@ function isPreviewable(filename) {
     return previewableExtensions.includes(extension);
 }
 
+// Formats the thumbnail endpoint renders, when the server offers thumbnails
+function hasThumbnail(filename) {
+    if (!filename || !appConfig.thumbnailSizes) return false;
+    const extension = filename.split('.').pop().toLowerCase();
+    return ['jpg', 'jpeg', 'png', 'gif', 'bmp'].includes(extension);
+}
+
+function isThumbnailKey(key) {
+    return !!appConfig.thumbnailPrefix && key.startsWith(appConfig.thumbnailPrefix);
+}
+
+// 'small' for the file list, 'large' for the preview pane
+function thumbnailUrl(key, which) {
+    const sizes = appConfig.thumbnailSizes;
+    const size = which === 'large' ? sizes[sizes.length - 1] : sizes[0];
+    return `/bucket/thumbnail/${key}?size=${size}`;
+}
+
+// Tooltip with the listing metadata that has no column of its own
+function describeObject(file) {
+    const parts = [];
+    if (file.lastModified) parts.push(`Modified ${file.lastModified.toLocaleString()}`);
+    if (file.storageClass) parts.push(`Storage class ${file.storageClass}`);
+    return parts.join(', ');
+}
+
 function formatFileSize(size) {
-    if (size === 0 || !size) return '';
+    // Search results carry no size
+    if (size === undefined || size === null) return '';
 
     const units = ['B', 'KB', 'MB', 'GB', 'TB'];
     let i = 0;
@@ -1099,6 +1409,90 @@ function isTextFile(filename) {
     return textExtensions.includes(extension);
 }
 
+function isImageFile(filename) {
+    const extension = filename.split('.').pop().toLowerCase();
+    return ['jpg', 'jpeg', 'png', 'gif', 'bmp', 'svg'].includes(extension);
+}
+
+// Lines shown per page of a text preview
+const PREVIEW_LINES = 500;
+
+// Shows one window of a text file with paging controls. Only the lines on screen
+// are transferred, so this works for multi-GB logs too.
+async function loadTextWindow(key, from) {
+    const previewModal = document.getElementById('preview-modal');
+    const previewContainer = document.getElementById('preview-container');
+    const editFileBtn = document.getElementById('edit-file-btn');
+
+    log('Fetching preview window:', key, from);
+    const response = await authenticatedFetch(`/bucket/preview/${key}?from=${from}&lines=${PREVIEW_LINES}`);
+    if (!response.ok) {
+        throw new Error(`Failed to load file: ${response.status} ${response.statusText}`);
+    }
+    const page = await response.json();
+
+    // The user may have moved on to another file while this was loading
+    if (previewModal.dataset.currentKey !== key) return;
+
+    const last = page.from + page.lines.length - 1;
+    const whole = page.from === 1 && page.nextLine === null && !page.truncated;
+    let html = '';
+    if (page.header !== null) {
+        html += `<pre class="preview-header">${escapeHtml(page.header)}</pre>`;
+    }
+    html += `<pre>${escapeHtml(page.lines.join('\n'))}</pre>`;
+    if (page.truncated) {
+        html += `<p class="preview-note">Long lines are cut short in the preview.</p>`;
+    }
+    if (!whole) {
+        const total = page.totalLines !== null ? page.totalLines.toLocaleString() : 'more';
+        const shown = page.lines.length > 0
+            ? `Lines ${page.from.toLocaleString()}-${last.toLocaleString()} of ${total}`
+            : `No lines from ${page.from.toLocaleString()} (${total} lines)`;
+        html += `
+            <div class="preview-pager pf-l-flex pf-m-align-items-center pf-m-gap-sm">
+                <button id="preview-prev" class="btn btn-secondary" ${page.from <= 1 ? 'disabled' : ''}>
+                    <i class="fas fa-chevron-left" aria-hidden="true"></i>
+                </button>
+                <span>${shown}</span>
+                <button id="preview-next" class="btn btn-secondary" ${page.nextLine === null ? 'disabled' : ''}>
+                    <i class="fas fa-chevron-right" aria-hidden="true"></i>
+                </button>
+                <input id="preview-goto" class="form-control" type="number" min="1" placeholder="Go to line">
+            </div>`;
+    }
+    previewContainer.innerHTML = html;
+    previewContainer.scrollTop = 0;
+
+    const prev = document.getElementById('preview-prev');
+    const next = document.getElementById('preview-next');
+    const gotoInput = document.getElementById('preview-goto');
+    if (prev) prev.onclick = () => loadTextWindow(key, Math.max(1, page.from - PREVIEW_LINES));
+    if (next) next.onclick = () => loadTextWindow(key, page.nextLine);
+    if (gotoInput) {
+        gotoInput.addEventListener('keydown', (e) => {
+            const line = parseInt(gotoInput.value, 10);
+            if (e.key === 'Enter' && line >= 1) loadTextWindow(key, line);
+        });
+    }
+
+    // Only files that fit on one page can be edited; the editor gets the exact bytes
+    if (editFileBtn && whole && !appConfig.readOnlyMode && isTextFile(key)) {
+        editFileBtn.style.display = 'block';
+        editFileBtn.onclick = async () => {
+            const original = await authenticatedFetch(`/bucket/download/${key}`);
+            if (!original.ok) {
+                showNotification(`Failed to load file: ${original.status}`, 'error');
+                return;
+            }
+            const text = await original.text();
+            previewModal.dataset.originalContent = text;
+            switchToEditMode(text);
+        };
+    }
+    log('Text preview successful');
+}
+
 // Switch to edit mode
 function switchToEditMode(content) {
     const previewContainer = document.getElementById('preview-container');
@@ -0,0 +1,33 @@
+package com.example.bucketbrowser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class BucketStatsTest {
+
+    @Test
+    void reconcileRecountsTotalsFromTheIndex() {
+        KeyIndex index = new KeyIndex();
+        ReflectionTestUtils.setField(index, "enabled", true);
+        BucketStats stats = new BucketStats(index);
+        stats.init();
+
+        List<ObjectSummary> listing = List.of(
+                new ObjectSummary("a.txt", 10, Instant.EPOCH, "\"a\""),
+                new ObjectSummary("b.txt", 32, Instant.EPOCH, "\"b\""));
+        index.reconcile(pages -> pages.accept(listing));
+        assertEquals(2, stats.getObjectCount());
+        assertEquals(42, stats.getTotalBytes());
+
+        // A delta the index never saw, as a lost race would leave behind
+        stats.keyChanged("ghost.txt", null, new ObjectSummary("ghost.txt", 1000, Instant.EPOCH, "\"g\""));
+        index.reconcile(pages -> pages.accept(listing));
+        assertEquals(2, stats.getObjectCount());
+        assertEquals(42, stats.getTotalBytes());
+    }
+}
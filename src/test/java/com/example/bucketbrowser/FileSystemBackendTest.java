@@ -0,0 +1,51 @@
+package com.example.bucketbrowser;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class FileSystemBackendTest {
+
+    @Test
+    void symlinksOutOfTheRootAreRefused(@TempDir Path temp) throws Exception {
+        Path root = Files.createDirectory(temp.resolve("root"));
+        Path outside = Files.createDirectory(temp.resolve("outside"));
+        Files.writeString(outside.resolve("secret.txt"), "secret", StandardCharsets.UTF_8);
+        Files.createSymbolicLink(root.resolve("escape"), outside);
+        Files.createSymbolicLink(root.resolve("secret-link.txt"), outside.resolve("secret.txt"));
+        Files.writeString(root.resolve("inside.txt"), "inside", StandardCharsets.UTF_8);
+        Files.createSymbolicLink(root.resolve("inside-link.txt"), root.resolve("inside.txt"));
+        FileSystemBackend backend = new FileSystemBackend(root, new KeyIndex());
+
+        assertThrows(IllegalArgumentException.class, () -> backend.resolve("escape/secret.txt"));
+        assertThrows(IllegalArgumentException.class, () -> backend.resolve("escape/new.txt"));
+        assertThrows(IllegalArgumentException.class, () -> backend.resolve("secret-link.txt"));
+        assertThrows(IllegalArgumentException.class,
+                () -> backend.uploadFile("escape/new.txt", new byte[] {1}, "application/octet-stream"));
+        assertEquals(List.of("secret.txt"), fileNames(outside));
+
+        // Links that stay under the root still work, and only those are listed
+        try (InputStream in = backend.downloadFile("inside-link.txt").stream()) {
+            assertArrayEquals("inside".getBytes(StandardCharsets.UTF_8), in.readAllBytes());
+        }
+        List<String> keys = new ArrayList<>();
+        backend.listBucketPages("", keys::addAll);
+        assertEquals(List.of("inside-link.txt", "inside.txt"), keys);
+    }
+
+    private static List<String> fileNames(Path dir) throws Exception {
+        try (var files = Files.list(dir)) {
+            return files.map(path -> path.getFileName().toString()).sorted().toList();
+        }
+    }
+}
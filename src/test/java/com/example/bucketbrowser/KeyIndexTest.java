@@ -0,0 +1,95 @@
+package com.example.bucketbrowser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class KeyIndexTest {
+
+    private static KeyIndex enabledIndex() {
+        KeyIndex index = new KeyIndex();
+        ReflectionTestUtils.setField(index, "enabled", true);
+        return index;
+    }
+
+    @Test
+    void listingPageFromBeforeAnAppWriteDoesNotRollItBack() {
+        KeyIndex index = enabledIndex();
+        ObjectSummary old = new ObjectSummary("a.txt", 10, Instant.EPOCH, "\"old\"");
+        index.reconcile(pages -> pages.accept(List.of(old)));
+
+        List<ObjectSummary> announced = new ArrayList<>();
+        index.addListener((key, previous, current) -> announced.add(current));
+        ObjectSummary written = new ObjectSummary("a.txt", 20, Instant.now(), "\"new\"");
+        index.reconcile(pages -> {
+            // The page was listed before the write landed
+            index.put(written);
+            pages.accept(List.of(old));
+        });
+
+        assertEquals(written, index.get("a.txt"));
+        assertEquals(List.of(written), announced);
+    }
+
+    @Test
+    void listenersSeeChangesToOneKeyInIndexOrder() throws Exception {
+        KeyIndex index = enabledIndex();
+        Map<String, Boolean> present = new ConcurrentHashMap<>();
+        index.addListener((key, previous, current) -> present.put(key, current != null));
+
+        ObjectSummary summary = new ObjectSummary("k", 1, Instant.EPOCH, "\"k\"");
+        CountDownLatch start = new CountDownLatch(1);
+        Thread writer = new Thread(() -> {
+            await(start);
+            for (int i = 0; i < 20_000; i++) {
+                index.put(summary);
+            }
+        });
+        Thread deleter = new Thread(() -> {
+            await(start);
+            for (int i = 0; i < 20_000; i++) {
+                index.remove("k");
+            }
+        });
+        writer.start();
+        deleter.start();
+        start.countDown();
+        writer.join();
+        deleter.join();
+
+        assertEquals(index.get("k") != null, present.get("k"));
+    }
+
+    @Test
+    void searchIndexDropsKeysTheKeyIndexNoLongerHas() {
+        KeyIndex index = enabledIndex();
+        KeySearchIndex search = new KeySearchIndex(index);
+        search.init();
+        index.reconcile(pages -> pages.accept(List.of(new ObjectSummary("reports/q1.csv", 1, Instant.EPOCH, "\"a\""))));
+
+        // A creation the key index never took, as a lost race would leave behind
+        search.keyChanged("reports/ghost.csv", null, new ObjectSummary("reports/ghost.csv", 1, Instant.EPOCH, "\"g\""));
+        index.reconcile(pages -> pages.accept(List.of(new ObjectSummary("reports/q1.csv", 1, Instant.EPOCH, "\"a\""))));
+
+        List<String> keys = search.search("csv", KeySearchIndex.Mode.SUBSTRING, null, 10).keys();
+        assertEquals(List.of("reports/q1.csv"), keys);
+        assertTrue(index.isReady());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
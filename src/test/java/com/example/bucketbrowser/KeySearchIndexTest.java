@@ -0,0 +1,54 @@
+package com.example.bucketbrowser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class KeySearchIndexTest {
+
+    private static ObjectSummary summary(String key) {
+        return new ObjectSummary(key, 1, Instant.EPOCH, "\"" + key + "\"");
+    }
+
+    @Test
+    void truncatedSearchReturnsTheAlphabeticallyFirstMatches() {
+        KeyIndex index = new KeyIndex();
+        ReflectionTestUtils.setField(index, "enabled", true);
+        KeySearchIndex search = new KeySearchIndex(index);
+        search.init();
+        // Added in reverse, so insertion order and key order disagree
+        for (String key : List.of("logs/e.log", "logs/d.log", "logs/c.log", "logs/b.log", "logs/a.log")) {
+            index.put(summary(key));
+        }
+
+        for (KeySearchIndex.Mode mode : KeySearchIndex.Mode.values()) {
+            String query = switch (mode) {
+                case SUBSTRING -> ".log";
+                case PREFIX -> "logs/";
+                case GLOB -> "logs/*.log";
+            };
+            KeySearchIndex.SearchResult result = search.search(query, mode, null, 2);
+            assertEquals(List.of("logs/a.log", "logs/b.log"), result.keys(), mode.name());
+            assertTrue(result.truncated(), mode.name());
+        }
+    }
+
+    @Test
+    void keysMissingFromTheKeyIndexAreNotReturned() {
+        KeyIndex index = new KeyIndex();
+        ReflectionTestUtils.setField(index, "enabled", true);
+        KeySearchIndex search = new KeySearchIndex(index);
+        search.init();
+        index.put(summary("docs/readme.md"));
+        // Posting-list drift: a key the search index has but the key index does not
+        search.keyChanged("docs/ghost.md", null, summary("docs/ghost.md"));
+
+        assertEquals(List.of("docs/readme.md"), search.search(".md", KeySearchIndex.Mode.SUBSTRING, null, 10).keys());
+        assertEquals(List.of("docs/readme.md"), search.search("docs/*", KeySearchIndex.Mode.GLOB, null, 10).keys());
+    }
+}
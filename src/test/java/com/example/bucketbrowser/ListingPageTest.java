@@ -0,0 +1,83 @@
+package com.example.bucketbrowser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ListingPageTest {
+
+    // U+FF08 is above the surrogate range, so in String order it sorts after U+10FFFF
+    private static final List<String> KEYS = List.of("a/\uFF08x\uFF09.txt", "a/b.txt", "c.txt", "d//e.txt");
+
+    @Test
+    void pagesPastCommonPrefixWithCharsAboveSurrogates() {
+        TreeMap<String, ObjectSummary> sorted = new TreeMap<>();
+        for (String key : KEYS) {
+            sorted.put(key, new ObjectSummary(key, 1, Instant.EPOCH, null));
+        }
+
+        assertEquals(List.of("a/", "c.txt", "d/"),
+                collect((cursor, pageSize) -> ListingPage.fromSorted(sorted, "", "/", cursor, pageSize)));
+        assertEquals(List.of("d//"),
+                collect((cursor, pageSize) -> ListingPage.fromSorted(sorted, "d/", "/", cursor, pageSize)));
+    }
+
+    @Test
+    void filesystemPagesPastCommonPrefixWithCharsAboveSurrogates(@TempDir Path root) throws Exception {
+        // A delimiter other than '/' goes through the per-file path rather than the folder shortcut
+        for (String key : List.of("a-\uFF08x\uFF09.txt", "a-b.txt", "c.txt")) {
+            Path file;
+            try {
+                file = root.resolve(key);
+            } catch (InvalidPathException e) {
+                // File names are limited to the platform charset, which may not be Unicode
+                assumeTrue(false, "File names cannot hold " + key);
+                return;
+            }
+            Files.writeString(file, "x", StandardCharsets.UTF_8);
+        }
+        FileSystemBackend backend = new FileSystemBackend(root, new KeyIndex());
+
+        assertEquals(List.of("a-", "c.txt"),
+                collect((cursor, pageSize) -> backend.listPage("", "-", cursor, pageSize)));
+    }
+
+    @Test
+    void successorSkipsTrailingMaxChars() {
+        assertEquals("a0", ListingPage.successor("a/"));
+        assertEquals("b", ListingPage.successor("a\uFFFF\uFFFF"));
+        assertNull(ListingPage.successor("\uFFFF"));
+    }
+
+    private interface Lister {
+        ListingPage page(String cursor, int pageSize);
+    }
+
+    // Follows the cursor one entry at a time, failing rather than looping if it never ends
+    private static List<String> collect(Lister lister) {
+        List<String> entries = new ArrayList<>();
+        String cursor = null;
+        for (int pages = 0; pages < 20; pages++) {
+            ListingPage page = lister.page(cursor, 1);
+            entries.addAll(page.prefixes());
+            entries.addAll(page.keys());
+            cursor = page.nextCursor();
+            if (cursor == null) {
+                return entries;
+            }
+        }
+        throw new AssertionError("Listing did not end: " + entries);
+    }
+}
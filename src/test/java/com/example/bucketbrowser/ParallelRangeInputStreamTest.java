@@ -0,0 +1,53 @@
+package com.example.bucketbrowser;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class ParallelRangeInputStreamTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void downloadsShareTheReadAheadPermits() throws Exception {
+        byte[] data = new byte[10_000];
+        new Random(1).nextBytes(data);
+        Semaphore readAhead = new Semaphore(2);
+
+        // The first download takes both permits, so the second one reads a chunk at a time
+        try (ParallelRangeInputStream first = open(data, readAhead);
+             ParallelRangeInputStream second = open(data, readAhead)) {
+            assertEquals(0, readAhead.availablePermits());
+            assertArrayEquals(data, second.readAllBytes());
+            assertArrayEquals(data, first.readAllBytes());
+            // Read to the end, every buffer has been let go
+            assertEquals(2, readAhead.availablePermits());
+        }
+
+        try (ParallelRangeInputStream abandoned = open(data, readAhead)) {
+            abandoned.read(new byte[100]);
+        }
+        assertEquals(2, readAhead.availablePermits());
+    }
+
+    private ParallelRangeInputStream open(byte[] data, Semaphore readAhead) {
+        int chunkSize = 1000;
+        ParallelRangeInputStream.RangeOpener opener = range ->
+                new ByteArrayInputStream(data, (int) range.start(), (int) range.length());
+        return new ParallelRangeInputStream(opener, new ByteArrayInputStream(data, 0, chunkSize),
+                new ByteRange(0, data.length - 1), chunkSize, 4, executor, readAhead);
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.bucketbrowser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpRange;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class TextPreviewServiceTest {
+
+    @Test
+    void concurrentJumpsIntoOneObjectShareTheScan(@TempDir Path root) throws Exception {
+        StringBuilder text = new StringBuilder();
+        for (int i = 1; i <= 200_000; i++) {
+            text.append("line number ").append(i).append('\n');
+        }
+        Files.writeString(root.resolve("big.log"), text, StandardCharsets.UTF_8);
+        long size = Files.size(root.resolve("big.log"));
+
+        AtomicLong requested = new AtomicLong();
+        FileSystemBackend backend = new FileSystemBackend(root, new KeyIndex()) {
+            @Override
+            public ObjectContent downloadFile(String key, HttpRange range) throws Exception {
+                requested.addAndGet(range.getRangeEnd(size) - range.getRangeStart(size) + 1);
+                // Slow enough that the jumps below overlap
+                Thread.sleep(5);
+                return super.downloadFile(key, range);
+            }
+        };
+        TextPreviewService previews = new TextPreviewService(backend, new KeyIndex());
+        ReflectionTestUtils.setField(previews, "maxLines", 100);
+        ReflectionTestUtils.setField(previews, "maxLineLength", 4096);
+        ReflectionTestUtils.setField(previews, "maxBytes", 1048576);
+        ReflectionTestUtils.setField(previews, "interval", 1000);
+        ReflectionTestUtils.setField(previews, "cacheEntries", 16);
+        ReflectionTestUtils.setField(previews, "scanChunkSize", 64 * 1024L);
+        ObjectMetadata current = backend.headObject("big.log");
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<TextPreviewService.Window>> windows = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                windows.add(executor.submit(() -> {
+                    start.await();
+                    return previews.read("big.log", current, 190_000, 1);
+                }));
+            }
+            start.countDown();
+            for (Future<TextPreviewService.Window> window : windows) {
+                assertEquals(List.of("line number 190000"), window.get().lines());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        // One scan up to the line, plus a small read per window
+        assertTrue(requested.get() < size * 3 / 2, requested.get() + " bytes requested for " + size);
+    }
+}
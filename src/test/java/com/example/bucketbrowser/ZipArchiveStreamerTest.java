@@ -0,0 +1,20 @@
+package com.example.bucketbrowser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class ZipArchiveStreamerTest {
+
+    @Test
+    void entryNamesCannotLeaveTheExtractionFolder() {
+        assertEquals("docs/report.pdf", ZipArchiveStreamer.entryName("docs/report.pdf"));
+        assertEquals("_/_/etc/passwd", ZipArchiveStreamer.entryName("../../etc/passwd"));
+        assertEquals("etc/passwd", ZipArchiveStreamer.entryName("/etc/passwd"));
+        assertEquals("a/_/_/x", ZipArchiveStreamer.entryName("a\\..\\..\\x"));
+        assertEquals("a/_/b", ZipArchiveStreamer.entryName("a/./b"));
+        assertEquals("a/b", ZipArchiveStreamer.entryName("a//b"));
+        assertEquals("_", ZipArchiveStreamer.entryName(".."));
+        assertEquals("..x/y..", ZipArchiveStreamer.entryName("..x/y.."));
+    }
+}